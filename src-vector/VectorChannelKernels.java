@@ -0,0 +1,196 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ChannelKernels dengan Vector API (jdk.incubator.vector). Sengaja di luar src/ agar `javac -d bin src/*.java`
+ * tetap jalan tanpa modul inkubator; dikompilasi terpisah setelah src/:
+ *   javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/*.java
+ * lalu diaktifkan dengan java --add-modules jdk.incubator.vector -Dquadtree.vector=true.
+ *
+ * Satu vektor memuat LANES piksel terpak; kanal diambil per lane dengan shift dan mask, jadi tidak perlu
+ * salinan planar. Akumulator lane berupa int dan di-reduce ke long paling lambat setiap FLUSH_PIXELS piksel,
+ * sehingga Σc² (maks 255² per piksel) tidak overflow. Ekor baris dan blok sempit memakai versi skalar.
+ */
+public class VectorChannelKernels extends ScalarChannelKernels {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final int FLUSH_PIXELS = ROW_CHUNK;
+    private static final int MIN_VECTOR_WIDTH = 2 * LANES;
+
+    @Override
+    public String getName() {
+        return "vector " + SPECIES.vectorBitSize() + "-bit";
+    }
+
+    @Override
+    public void sums(int[] pixels, int offset, int stride, int width, int height, long[] out) {
+        if (width < MIN_VECTOR_WIDTH) {
+            super.sums(pixels, offset, stride, width, height, out);
+            return;
+        }
+        if (width > FLUSH_PIXELS) {
+            splitColumns(pixels, offset, stride, width, height, null, out);
+            return;
+        }
+        int vectorWidth = SPECIES.loopBound(width);
+        long sumR = 0, sumG = 0, sumB = 0, squaresR = 0, squaresG = 0, squaresB = 0;
+        IntVector accR = IntVector.zero(SPECIES), accG = accR, accB = accR;
+        IntVector accRR = accR, accGG = accR, accBB = accR;
+        int pending = 0;
+        for (int row = 0, start = offset; ; row++, start += stride) {
+            if (row == height || pending + vectorWidth > FLUSH_PIXELS) {
+                sumR += accR.reduceLanes(VectorOperators.ADD);
+                sumG += accG.reduceLanes(VectorOperators.ADD);
+                sumB += accB.reduceLanes(VectorOperators.ADD);
+                squaresR += accRR.reduceLanes(VectorOperators.ADD);
+                squaresG += accGG.reduceLanes(VectorOperators.ADD);
+                squaresB += accBB.reduceLanes(VectorOperators.ADD);
+                if (row == height) break;
+                accR = accG = accB = accRR = accGG = accBB = IntVector.zero(SPECIES);
+                pending = 0;
+            }
+            int i = start;
+            for (int vectorEnd = start + vectorWidth; i < vectorEnd; i += LANES) {
+                IntVector rgb = IntVector.fromArray(SPECIES, pixels, i);
+                IntVector r = rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+                IntVector g = rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+                IntVector b = rgb.and(0xFF);
+                accR = accR.add(r);
+                accG = accG.add(g);
+                accB = accB.add(b);
+                accRR = accRR.add(r.mul(r));
+                accGG = accGG.add(g.mul(g));
+                accBB = accBB.add(b.mul(b));
+            }
+            pending += vectorWidth;
+            for (int end = start + width; i < end; i++) {
+                int rgb = pixels[i];
+                int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+                sumR += r;
+                sumG += g;
+                sumB += b;
+                squaresR += r * r;
+                squaresG += g * g;
+                squaresB += b * b;
+            }
+        }
+        out[0] = sumR;
+        out[1] = sumG;
+        out[2] = sumB;
+        out[3] = squaresR;
+        out[4] = squaresG;
+        out[5] = squaresB;
+    }
+
+    @Override
+    public void absoluteSums(int[] pixels, int offset, int stride, int width, int height, int[] pivots, long[] out) {
+        if (width < MIN_VECTOR_WIDTH) {
+            super.absoluteSums(pixels, offset, stride, width, height, pivots, out);
+            return;
+        }
+        if (width > FLUSH_PIXELS) {
+            splitColumns(pixels, offset, stride, width, height, pivots, out);
+            return;
+        }
+        int pivotR = pivots[0], pivotG = pivots[1], pivotB = pivots[2];
+        IntVector pivotVR = IntVector.broadcast(SPECIES, pivotR), pivotVG = IntVector.broadcast(SPECIES, pivotG);
+        IntVector pivotVB = IntVector.broadcast(SPECIES, pivotB);
+        int vectorWidth = SPECIES.loopBound(width);
+        long absR = 0, absG = 0, absB = 0, countR = 0, countG = 0, countB = 0;
+        IntVector accAbsR = IntVector.zero(SPECIES), accAbsG = accAbsR, accAbsB = accAbsR;
+        IntVector accCountR = accAbsR, accCountG = accAbsR, accCountB = accAbsR;
+        int pending = 0;
+        for (int row = 0, start = offset; ; row++, start += stride) {
+            if (row == height || pending + vectorWidth > FLUSH_PIXELS) {
+                absR += accAbsR.reduceLanes(VectorOperators.ADD);
+                absG += accAbsG.reduceLanes(VectorOperators.ADD);
+                absB += accAbsB.reduceLanes(VectorOperators.ADD);
+                countR += accCountR.reduceLanes(VectorOperators.ADD);
+                countG += accCountG.reduceLanes(VectorOperators.ADD);
+                countB += accCountB.reduceLanes(VectorOperators.ADD);
+                if (row == height) break;
+                accAbsR = accAbsG = accAbsB = accCountR = accCountG = accCountB = IntVector.zero(SPECIES);
+                pending = 0;
+            }
+            int i = start;
+            for (int vectorEnd = start + vectorWidth; i < vectorEnd; i += LANES) {
+                IntVector rgb = IntVector.fromArray(SPECIES, pixels, i);
+                IntVector r = rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+                IntVector g = rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+                IntVector b = rgb.and(0xFF);
+                accAbsR = accAbsR.add(r.sub(pivotVR).abs());
+                accAbsG = accAbsG.add(g.sub(pivotVG).abs());
+                accAbsB = accAbsB.add(b.sub(pivotVB).abs());
+                // Bit tanda pivot - c: 1 bila c > pivot, seperti versi skalar
+                accCountR = accCountR.add(pivotVR.sub(r).lanewise(VectorOperators.LSHR, 31));
+                accCountG = accCountG.add(pivotVG.sub(g).lanewise(VectorOperators.LSHR, 31));
+                accCountB = accCountB.add(pivotVB.sub(b).lanewise(VectorOperators.LSHR, 31));
+            }
+            pending += vectorWidth;
+            for (int end = start + width; i < end; i++) {
+                int rgb = pixels[i];
+                int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+                absR += Math.abs(r - pivotR);
+                absG += Math.abs(g - pivotG);
+                absB += Math.abs(b - pivotB);
+                countR += (pivotR - r) >>> 31;
+                countG += (pivotG - g) >>> 31;
+                countB += (pivotB - b) >>> 31;
+            }
+        }
+        out[0] = absR;
+        out[1] = absG;
+        out[2] = absB;
+        out[3] = countR;
+        out[4] = countG;
+        out[5] = countB;
+    }
+
+    // Min/max tidak bisa overflow, jadi cukup satu reduksi di akhir
+    @Override
+    public long minMax(int[] pixels, int offset, int stride, int width, int height) {
+        if (width < MIN_VECTOR_WIDTH) {
+            return super.minMax(pixels, offset, stride, width, height);
+        }
+        int vectorWidth = SPECIES.loopBound(width);
+        IntVector minR = IntVector.broadcast(SPECIES, 0xFF0000), minG = IntVector.broadcast(SPECIES, 0xFF00);
+        IntVector minB = IntVector.broadcast(SPECIES, 0xFF);
+        IntVector maxR = IntVector.zero(SPECIES), maxG = maxR, maxB = maxR;
+        long tail = MinMaxPyramid.EMPTY;
+        for (int row = 0, start = offset; row < height; row++, start += stride) {
+            int i = start;
+            for (int vectorEnd = start + vectorWidth; i < vectorEnd; i += LANES) {
+                IntVector rgb = IntVector.fromArray(SPECIES, pixels, i);
+                IntVector r = rgb.and(0xFF0000), g = rgb.and(0xFF00), b = rgb.and(0xFF);
+                minR = minR.min(r);
+                minG = minG.min(g);
+                minB = minB.min(b);
+                maxR = maxR.max(r);
+                maxG = maxG.max(g);
+                maxB = maxB.max(b);
+            }
+            if (i < start + width) {
+                tail = MinMaxPyramid.combine(tail, super.minMax(pixels, i, stride, start + width - i, 1));
+            }
+        }
+        long vector = MinMaxPyramid.pack(
+                minR.reduceLanes(VectorOperators.MIN) | minG.reduceLanes(VectorOperators.MIN) | minB.reduceLanes(VectorOperators.MIN),
+                maxR.reduceLanes(VectorOperators.MAX) | maxG.reduceLanes(VectorOperators.MAX) | maxB.reduceLanes(VectorOperators.MAX));
+        return MinMaxPyramid.combine(vector, tail);
+    }
+
+    // Blok lebih lebar dari FLUSH_PIXELS (jarang) dibagi dua kolom agar batas overflow per reduksi tetap berlaku
+    private void splitColumns(int[] pixels, int offset, int stride, int width, int height, int[] pivots, long[] out) {
+        int half = width / 2;
+        long[] right = new long[out.length];
+        if (pivots == null) {
+            sums(pixels, offset, stride, half, height, out);
+            sums(pixels, offset + half, stride, width - half, height, right);
+        } else {
+            absoluteSums(pixels, offset, stride, half, height, pivots, out);
+            absoluteSums(pixels, offset + half, stride, width - half, height, pivots, right);
+        }
+        for (int i = 0; i < right.length; i++) out[i] += right[i];
+    }
+}
@@ -0,0 +1,328 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import org.w3c.dom.Node;
+
+/**
+ * Membaca gambar per pita baris tanpa pernah menyimpan gambar utuh di heap (TiledCompressor, cache .rgbm).
+ *
+ * PNG tanpa interlace dan JPEG baseline di-decode sekali dari awal sampai akhir: reader menulis ke BufferedImage
+ * tujuan seukuran gambar yang DataBuffer-nya (RowWindow) hanya menampung satu pita. Reader keduanya menulis
+ * baris berurutan, jadi begitu baris pertama di bawah pita ditulis, pita itu lengkap dan diserahkan ke consumer.
+ *
+ * Format lain (serta PNG interlace dan JPEG progresif, yang menulis ulang seluruh gambar per pass/scan) dibaca
+ * per pita lewat source region. Reader bawaan ImageIO untuk PNG/JPEG/GIF men-decode ulang file dari awal di setiap read, jadi
+ * biayanya ~ jumlah pita x decode penuh; BMP/WBMP tidak terpengaruh.
+ */
+public class BandImageReader implements AutoCloseable {
+    // Consumer boleh mengubah isi rgb; array yang sama dipakai ulang untuk pita berikutnya
+    public interface BandConsumer {
+        void accept(int[] rgb, int y, int rows) throws IOException;
+    }
+
+    private final ImageInputStream in;
+    private final ImageReader reader;
+    private final int width, height;
+
+    public BandImageReader(File image) throws IOException {
+        in = ImageIO.createImageInputStream(image);
+        if (in == null) {
+            throw new IOException("Cannot read image file");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            in.close();
+            throw new IOException("Format file tidak didukung.");
+        }
+        reader = readers.next();
+        try {
+            reader.setInput(in, false, true);
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // true bila read() cukup satu kali decode; selain itu setiap pita di-decode lewat source region
+    public boolean isSequential() throws IOException {
+        return sequentialType() != null;
+    }
+
+    // Mengirim gambar ke consumer per pita bandRows baris (pita terakhir boleh lebih pendek), berurutan dari atas
+    public void read(int bandRows, BandConsumer consumer) throws IOException {
+        if (bandRows <= 0) {
+            throw new IllegalArgumentException("Tinggi pita harus positif.");
+        }
+        ImageTypeSpecifier type = sequentialType();
+        if (type == null) {
+            readRegions(bandRows, consumer);
+            return;
+        }
+
+        int rows = Math.min(bandRows, height);
+        SampleModel sampleModel = type.getSampleModel(width, height);
+        RowWindow window = new RowWindow(type, sampleModel, rows, consumer);
+        if (window.band instanceof DataBufferByte && sampleModel instanceof PixelInterleavedSampleModel) {
+            sampleModel = new WindowSampleModel((PixelInterleavedSampleModel) sampleModel, window);
+        }
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, window, null);
+        ColorModel colorModel = type.getColorModel();
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setDestination(new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null));
+        // IOException dari consumer dibawa keluar reader sebagai UncheckedIOException (reader PNG membungkusnya lagi)
+        try {
+            reader.read(0, param);
+            window.deliver(height - window.firstRow);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IOException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw e;
+        }
+    }
+
+    // Satu read dengan source region per pita: gambar utuh tidak pernah di heap, tapi decode bisa berulang
+    void readRegions(int bandRows, BandConsumer consumer) throws IOException {
+        int[] rgb = new int[Math.min(bandRows, height) * width];
+        for (int bandY = 0; bandY < height; bandY += bandRows) {
+            int rows = Math.min(bandRows, height - bandY);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, bandY, width, rows));
+            BufferedImage band = reader.read(0, param);
+            band.getRGB(0, 0, width, rows, rgb, 0, width);
+            for (int i = 0; i < rows * width; i++) {
+                rgb[i] &= 0xFFFFFF;
+            }
+            consumer.accept(rgb, bandY, rows);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        in.close();
+    }
+
+    // Tipe tujuan bawaan reader bila gambar bisa di-decode berurutan ke RowWindow; null bila tidak
+    private ImageTypeSpecifier sequentialType() throws IOException {
+        String format = reader.getFormatName().toLowerCase();
+        if (format.equals("png")) {
+            if (!"none".equals(metadataAttribute("javax_imageio_png_1.0", "IHDR", "interlaceMethod"))) return null;
+        } else if (format.equals("jpeg")) {
+            // Proses 2 = progresif: reader menulis ulang seluruh gambar untuk setiap scan
+            String process = metadataAttribute("javax_imageio_jpeg_image_1.0", "sof", "process");
+            if (process == null || process.equals("2")) return null;
+        } else {
+            return null;
+        }
+        Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+        if (!types.hasNext()) return null;
+        ImageTypeSpecifier type = types.next();
+        int dataType = type.getSampleModel(1, 1).getDataType();
+        if (dataType != DataBuffer.TYPE_BYTE && dataType != DataBuffer.TYPE_USHORT
+                && dataType != DataBuffer.TYPE_INT) {
+            return null;
+        }
+        long stride = scanlineStride(type.getSampleModel(width, 1));
+        return stride > 0 && stride * height <= Integer.MAX_VALUE ? type : null;
+    }
+
+    // Atribut node pertama bernama nodeName di metadata native reader; null bila tidak ada
+    private String metadataAttribute(String format, String nodeName, String attribute) throws IOException {
+        IIOMetadata metadata = reader.getImageMetadata(0);
+        if (metadata == null) return null;
+        Node node = find(metadata.getAsTree(format), nodeName);
+        Node value = node == null ? null : node.getAttributes().getNamedItem(attribute);
+        return value == null ? null : value.getNodeValue();
+    }
+
+    private static Node find(Node node, String name) {
+        if (node.getNodeName().equals(name)) return node;
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            Node found = find(child, name);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    // Jumlah elemen DataBuffer per baris (per bank); 0 bila tata letak sample model tidak dikenal
+    private static int scanlineStride(SampleModel sampleModel) {
+        if (sampleModel instanceof ComponentSampleModel) {
+            return ((ComponentSampleModel) sampleModel).getScanlineStride();
+        }
+        if (sampleModel instanceof MultiPixelPackedSampleModel) {
+            return ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride();
+        }
+        if (sampleModel instanceof SinglePixelPackedSampleModel) {
+            return ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+        }
+        return 0;
+    }
+
+    private static int banks(SampleModel sampleModel) {
+        int banks = 1;
+        if (sampleModel instanceof ComponentSampleModel) {
+            for (int bank : ((ComponentSampleModel) sampleModel).getBankIndices()) {
+                banks = Math.max(banks, bank + 1);
+            }
+        }
+        return banks;
+    }
+
+    /**
+     * DataBuffer seukuran gambar yang hanya menyimpan baris firstRow .. firstRow + rows - 1, di DataBuffer
+     * standar milik gambar selebar satu pita (band). Akses ke baris di bawah jendela menyerahkan pita saat ini
+     * ke consumer lalu menggeser jendela satu pita; akses ke baris yang sudah diserahkan berarti reader tidak
+     * menulis berurutan.
+     */
+    private final class RowWindow extends DataBuffer {
+        private final int stride;
+        private final int rows;
+        final DataBuffer band;
+        private final BufferedImage bandImage;
+        private final int[] rgb;
+        private final BandConsumer consumer;
+        private final int windowSize;
+        private int windowStart;
+        int firstRow;
+
+        RowWindow(ImageTypeSpecifier type, SampleModel sampleModel, int rows, BandConsumer consumer) {
+            super(sampleModel.getDataType(), scanlineStride(sampleModel) * height, banks(sampleModel));
+            this.stride = scanlineStride(sampleModel);
+            this.rows = rows;
+            this.consumer = consumer;
+            this.rgb = new int[rows * width];
+            this.bandImage = type.createBufferedImage(width, rows);
+            this.band = bandImage.getRaster().getDataBuffer();
+            this.windowSize = stride * rows;
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            return band.getElem(bank, slot(i));
+        }
+
+        @Override
+        public void setElem(int bank, int i, int value) {
+            band.setElem(bank, slot(i), value);
+        }
+
+        private int slot(int i) {
+            int index = i - windowStart;
+            if (index >= 0 && index < windowSize) return index;
+            return rowOffset(i / stride) + i % stride;
+        }
+
+        // Posisi awal baris y di band
+        int rowOffset(int y) {
+            int row = y - firstRow;
+            if (row >= 0 && row < rows) return row * stride;
+            if (row < 0) {
+                throw new IllegalStateException("Reader menulis baris " + y + " setelah pitanya diserahkan.");
+            }
+            if (row >= 2 * rows) {
+                throw new IllegalStateException("Reader melompati baris " + (firstRow + rows) + ".." + (y - 1) + ".");
+            }
+            deliver(rows);
+            firstRow += rows;
+            windowStart += windowSize;
+            return (y - firstRow) * stride;
+        }
+
+        // Baris jendela diserahkan sebagai 0x00RRGGBB; BGR/ABGR 8-bit (JPEG, PNG RGB/RGBA) dibaca langsung,
+        // karena getRGB untuk tipe itu hanya menyalin byte; tipe lain lewat ColorModel reader
+        void deliver(int count) {
+            if (count <= 0) return;
+            int type = bandImage.getType();
+            if (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR) {
+                byte[] bytes = ((DataBufferByte) band).getData();
+                int pixelStride = type == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+                for (int i = 0, blue = pixelStride - 3; i < count * width; i++, blue += pixelStride) {
+                    rgb[i] = (bytes[blue + 2] & 0xFF) << 16 | (bytes[blue + 1] & 0xFF) << 8 | bytes[blue] & 0xFF;
+                }
+            } else {
+                bandImage.getRGB(0, 0, width, count, rgb, 0, width);
+                for (int i = 0; i < count * width; i++) {
+                    rgb[i] &= 0xFFFFFF;
+                }
+            }
+            try {
+                consumer.accept(rgb, firstRow, count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Sample model byte terpaket per piksel (JPEG, PNG 8-bit) yang menulis langsung ke array band. Tanpa ini
+     * reader PNG menulis per piksel dan reader JPEG per sampel lewat DataBuffer.setElem; getter dan
+     * setDataElements tetap lewat RowWindow.
+     */
+    private static final class WindowSampleModel extends PixelInterleavedSampleModel {
+        private final RowWindow window;
+        private final byte[] band;
+        private final int pixelStride;
+        private final int[] bandOffsets;
+
+        WindowSampleModel(PixelInterleavedSampleModel model, RowWindow window) {
+            super(DataBuffer.TYPE_BYTE, model.getWidth(), model.getHeight(), model.getPixelStride(),
+                    model.getScanlineStride(), model.getBandOffsets());
+            this.window = window;
+            this.band = ((DataBufferByte) window.band).getData();
+            this.pixelStride = model.getPixelStride();
+            this.bandOffsets = model.getBandOffsets();
+        }
+
+        @Override
+        public void setPixel(int x, int y, int[] iArray, DataBuffer data) {
+            int offset = window.rowOffset(y) + x * pixelStride;
+            for (int b = 0; b < bandOffsets.length; b++) {
+                band[offset + bandOffsets[b]] = (byte) iArray[b];
+            }
+        }
+
+        @Override
+        public void setPixels(int x, int y, int w, int h, int[] iArray, DataBuffer data) {
+            int source = 0;
+            for (int row = y; row < y + h; row++) {
+                int offset = window.rowOffset(row) + x * pixelStride;
+                for (int column = 0; column < w; column++, offset += pixelStride) {
+                    for (int b = 0; b < bandOffsets.length; b++) {
+                        band[offset + bandOffsets[b]] = (byte) iArray[source++];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,408 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.imageio.ImageIO;
+
+// Mode non-interaktif: kompresi banyak gambar sekaligus tanpa prompt, jeda, maupun progress bar
+public class BatchCompressor {
+    private final List<File> inputFiles = new ArrayList<>();
+    private File outputDir;
+    private ErrorMetric errorMetric;
+    private double threshold = -1;
+    private int minBlockSize = 16;
+    private double targetCompression = 0;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private boolean parallelBuild;
+    private int parallelCutoff = QuadTree.DEFAULT_PARALLEL_CUTOFF;
+    private int tileSize;
+    private boolean saveTree;
+    private File cacheDir;
+    private File metricsFile;
+    // Negatif = split selalu dengan error eksak
+    private double sampledSplitMargin = -1;
+    private double sampledSplitTolerance = SampledSplit.DEFAULT_TOLERANCE;
+
+    public static void printUsage() {
+        System.out.println("Penggunaan: java Main --batch --input <dir|file>[,<file>...] | --input-list <file>");
+        System.out.println("                      --output <dir> --metric <1-5|variance|mad|max|entropy|ssim>");
+        System.out.println("                      (--threshold <t> [--min-block <n>] | --target <0-1>)");
+        System.out.println("                      [--workers <n>] [--parallel] [--parallel-cutoff=<n>]");
+        System.out.println("                      [--tiled | --tile-size <2^k>]  (streaming per tile, output PNG)");
+        System.out.println("                      [--save-tree]  (simpan juga pohon sebagai <nama>.qtree)");
+        System.out.println("                      [--cache <dir>]  (decode sekali ke cache .rgbm, lalu di-mmap)");
+        System.out.println("                      [--metrics <file.json|file.prom>]  (timer per tahap pipeline)");
+        System.out.println("                      [--sampled-split[=<margin>]]  (keputusan split blok besar dari sampel)");
+        System.out.println("                      [--sampled-tolerance <0-1>]  (batas audit sampel sebelum build ulang eksak)");
+    }
+
+    public static BatchCompressor fromArgs(String[] args) throws IOException {
+        BatchCompressor batch = new BatchCompressor();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--batch" -> { }
+                case "--input" -> {
+                    for (String path : requireValue(args, ++i, arg).split(",")) {
+                        batch.addInput(new File(path));
+                    }
+                }
+                case "--input-list" -> {
+                    for (String line : Files.readAllLines(new File(requireValue(args, ++i, arg)).toPath())) {
+                        if (!line.isBlank()) batch.addInput(new File(line.trim()));
+                    }
+                }
+                case "--output" -> batch.outputDir = new File(requireValue(args, ++i, arg));
+                case "--metric" -> batch.errorMetric = ErrorMetricFactory.createErrorMetric(requireValue(args, ++i, arg));
+                case "--threshold" -> batch.threshold = parseDouble(requireValue(args, ++i, arg), arg);
+                case "--min-block" -> batch.minBlockSize = parseInt(requireValue(args, ++i, arg), arg);
+                case "--target" -> batch.targetCompression = parseDouble(requireValue(args, ++i, arg), arg);
+                case "--workers" -> batch.workers = parseInt(requireValue(args, ++i, arg), arg);
+                case "--parallel" -> batch.parallelBuild = true;
+                case "--tiled" -> batch.tileSize = TiledCompressor.DEFAULT_TILE_SIZE;
+                case "--tile-size" -> batch.tileSize = parseInt(requireValue(args, ++i, arg), arg);
+                case "--save-tree" -> batch.saveTree = true;
+                case "--cache" -> batch.cacheDir = new File(requireValue(args, ++i, arg));
+                case "--metrics" -> batch.metricsFile = new File(requireValue(args, ++i, arg));
+                case "--sampled-split" -> batch.sampledSplitMargin = SampledSplit.DEFAULT_MARGIN;
+                case "--sampled-tolerance" -> {
+                    if (batch.sampledSplitMargin < 0) batch.sampledSplitMargin = SampledSplit.DEFAULT_MARGIN;
+                    batch.sampledSplitTolerance = parseDouble(requireValue(args, ++i, arg), arg);
+                    if (!(batch.sampledSplitTolerance >= 0 && batch.sampledSplitTolerance <= 1)) {
+                        throw new IllegalArgumentException("Toleransi split sampel harus di antara 0 dan 1.");
+                    }
+                }
+                default -> {
+                    if (arg.startsWith("--parallel-cutoff=")) {
+                        batch.parallelBuild = true;
+                        batch.parallelCutoff = parseInt(arg.substring("--parallel-cutoff=".length()), "--parallel-cutoff");
+                    } else if (arg.startsWith("--sampled-split=")) {
+                        batch.sampledSplitMargin = parseDouble(arg.substring("--sampled-split=".length()), "--sampled-split");
+                        if (batch.sampledSplitMargin < 0) {
+                            throw new IllegalArgumentException("Margin split sampel tidak boleh negatif.");
+                        }
+                    } else {
+                        throw new IllegalArgumentException("Argumen tidak dikenali: " + arg);
+                    }
+                }
+            }
+        }
+        batch.validate();
+        return batch;
+    }
+
+    private static String requireValue(String[] args, int index, String flag) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Nilai untuk " + flag + " tidak diberikan.");
+        }
+        return args[index];
+    }
+
+    private static double parseDouble(String value, String flag) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nilai " + flag + " harus berupa angka: " + value);
+        }
+    }
+
+    private static int parseInt(String value, String flag) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nilai " + flag + " harus berupa bilangan bulat: " + value);
+        }
+    }
+
+    private void addInput(File file) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) return;
+            Arrays.sort(children);
+            for (File child : children) {
+                if (child.isFile() && isSupported(child)) inputFiles.add(child);
+            }
+        } else {
+            inputFiles.add(file);
+        }
+    }
+
+    private void validate() {
+        if (inputFiles.isEmpty()) throw new IllegalArgumentException("Tidak ada gambar input.");
+        if (outputDir == null) throw new IllegalArgumentException("Direktori output (--output) wajib diisi.");
+        if (errorMetric == null) throw new IllegalArgumentException("Metode error (--metric) wajib diisi.");
+        if (targetCompression < 0 || targetCompression > 1) {
+            throw new IllegalArgumentException("Target kompresi harus di antara 0 dan 1.");
+        }
+        if (targetCompression == 0 && threshold < 0) {
+            throw new IllegalArgumentException("Isi --threshold atau --target.");
+        }
+        if (minBlockSize <= 0) throw new IllegalArgumentException("Ukuran blok minimum harus positif.");
+        if (workers <= 0) throw new IllegalArgumentException("Jumlah worker harus positif.");
+        if (parallelCutoff <= 0) throw new IllegalArgumentException("Parallel cutoff harus positif.");
+        if (tileSize < 0 || (tileSize > 0 && Integer.bitCount(tileSize) != 1)) {
+            throw new IllegalArgumentException("Ukuran tile harus pangkat dua.");
+        }
+        if (tileSize > 0 && targetCompression > 0) {
+            throw new IllegalArgumentException("Mode tiled hanya mendukung --threshold, bukan --target.");
+        }
+        if (tileSize > 0 && saveTree) {
+            throw new IllegalArgumentException("--save-tree tidak bisa dipakai bersama mode tiled.");
+        }
+        if (tileSize > 0 && cacheDir != null) {
+            throw new IllegalArgumentException("--cache tidak bisa dipakai bersama mode tiled.");
+        }
+        if (sampledSplitMargin >= 0 && (tileSize > 0 || targetCompression > 0)) {
+            throw new IllegalArgumentException("--sampled-split hanya untuk mode --threshold tanpa tiled.");
+        }
+        // Output ditulis per nama file ke satu direktori; dua input dengan nama sama akan saling menimpa
+        Map<String, File> outputs = new HashMap<>();
+        for (File file : inputFiles) {
+            for (String name : outputNames(file)) {
+                File previous = outputs.putIfAbsent(name, file);
+                if (previous != null) {
+                    throw new IllegalArgumentException("Output " + name + " dipakai oleh dua input: "
+                            + previous + " dan " + file + ".");
+                }
+            }
+        }
+    }
+
+    private List<String> outputNames(File file) {
+        List<String> names = new ArrayList<>();
+        names.add(tileSize > 0 ? baseName(file) + ".png" : file.getName());
+        if (saveTree) names.add(baseName(file) + QuadTreeCodec.EXTENSION);
+        return names;
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        return extensionIndex > 0 ? name.substring(0, extensionIndex) : name;
+    }
+
+    // Nama cache memuat hash path absolut: gambar bernama sama dari direktori lain (juga pada run berikutnya)
+    // tidak boleh memakai cache milik gambar lain, yang bisa saja lebih baru dari gambarnya
+    private static File cacheFile(File cacheDir, File image) {
+        String hash = Integer.toHexString(image.getAbsoluteFile().toPath().normalize().toString().hashCode());
+        return new File(cacheDir, image.getName() + "-" + hash + MappedRGBMatrix.EXTENSION);
+    }
+
+    private static boolean isSupported(File file) {
+        String extension = getFileExtension(file);
+        return extension.equals("jpg") || extension.equals("jpeg") || extension.equals("png");
+    }
+
+    private static String getFileExtension(File file) {
+        String fileName = file.getName();
+        int extensionIndex = fileName.lastIndexOf(".");
+        return extensionIndex > 0 ? fileName.substring(extensionIndex + 1).toLowerCase() : "";
+    }
+
+    private static class Result {
+        File file;
+        int width, height;
+        long decodeNanos, compressNanos, encodeNanos;
+        long inputSize, outputSize, treeSize;
+        String error;
+    }
+
+    public boolean run() throws InterruptedException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.err.println("ERROR: Gagal membuat direktori output " + outputDir);
+            return false;
+        }
+        System.out.println("Batch: " + inputFiles.size() + " gambar, metric " + errorMetric.getName()
+                + ", " + workers + " worker");
+
+        PipelineMetrics metrics = metricsFile != null ? PipelineMetrics.enable() : PipelineMetrics.get();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Result>> futures = new ArrayList<>();
+        // Setelah OutOfMemoryError (atau Error lain) keadaan JVM tidak pasti: gambar yang belum mulai dilewati
+        // dan Error dilempar ulang sehingga batch berhenti dengan status gagal
+        AtomicBoolean aborted = new AtomicBoolean();
+        try {
+            for (File file : inputFiles) {
+                futures.add(executor.submit(() -> {
+                    if (aborted.get()) return null;
+                    try {
+                        return compress(file);
+                    } catch (Error e) {
+                        aborted.set(true);
+                        throw e;
+                    }
+                }));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                try {
+                    Result result = future.get();
+                    if (result != null) results.add(result);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            printSummary(results, System.nanoTime() - start);
+            if (metricsFile != null && !writeMetrics(metrics)) return false;
+            return results.stream().allMatch(result -> result.error == null);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result compress(File file) {
+        Result result = new Result();
+        result.file = file;
+        try {
+            String format = getFileExtension(file);
+            if (!isSupported(file)) {
+                throw new IOException("Format file tidak didukung.");
+            }
+
+            if (tileSize > 0) {
+                return compressTiled(file, result);
+            }
+
+            PipelineMetrics metrics = PipelineMetrics.get();
+            long t0 = System.nanoTime();
+            RGBMatrix rgbMatrix;
+            if (cacheDir != null) {
+                File cache = cacheFile(cacheDir, file);
+                rgbMatrix = MappedRGBMatrix.openOrCreate(file, cache.toPath());
+                metrics.stop("decode", t0);
+            } else {
+                BufferedImage image = ImageIO.read(file);
+                if (image == null) {
+                    throw new IOException("Cannot read image file");
+                }
+                metrics.stop("decode", t0);
+                long convertStart = metrics.start();
+                rgbMatrix = RGBMatrix.fromBufferedImage(image);
+                metrics.stop("rgb_convert", convertStart);
+                image = null;
+            }
+            result.width = rgbMatrix.getWidth();
+            result.height = rgbMatrix.getHeight();
+
+            long t1 = System.nanoTime();
+            BufferedImage compressed;
+            QuadTree quadTree;
+            if (targetCompression > 0) {
+                CompressionController controller = new CompressionController(parallelBuild, parallelCutoff);
+                controller.setVerbose(false);
+                CompressedImage compressedImage = controller.compressWithTarget(rgbMatrix, errorMetric, targetCompression, format);
+                compressed = compressedImage.getImage();
+                quadTree = compressedImage.getQuadTree();
+            } else {
+                quadTree = new QuadTree(rgbMatrix, errorMetric, threshold, minBlockSize);
+                quadTree.setParallel(parallelBuild, parallelCutoff);
+                if (sampledSplitMargin >= 0) quadTree.setSampledSplit(new SampledSplit(sampledSplitMargin, sampledSplitTolerance));
+                quadTree.buildTree();
+                compressed = quadTree.render();
+            }
+
+            long t2 = System.nanoTime();
+            File outputFile = new File(outputDir, file.getName());
+            if (!ImageIO.write(compressed, format, outputFile)) {
+                throw new IOException("No writer for format " + format);
+            }
+            if (saveTree) {
+                File treeFile = new File(outputDir, baseName(file) + QuadTreeCodec.EXTENSION);
+                result.treeSize = QuadTreeCodec.write(quadTree, treeFile.toPath(), true);
+            }
+            long t3 = System.nanoTime();
+            metrics.stop("encode", t2);
+
+            result.decodeNanos = t1 - t0;
+            result.compressNanos = t2 - t1;
+            result.encodeNanos = t3 - t2;
+            result.inputSize = file.length();
+            result.outputSize = outputFile.length();
+            System.out.printf("%s %dx%d decode %.1f ms, compress %.1f ms, encode %.1f ms, %d -> %d bytes%n",
+                    file.getName(), result.width, result.height, result.decodeNanos / 1e6, result.compressNanos / 1e6,
+                    result.encodeNanos / 1e6, result.inputSize, result.outputSize);
+            if (saveTree) {
+                System.out.printf("%s pohon %d node -> %d bytes%n", file.getName(), quadTree.getNodeCount(), result.treeSize);
+            }
+            if (quadTree.getSampledSplitStatistics() != null) {
+                System.out.printf("%s split sampel: %s%n", file.getName(), quadTree.getSampledSplitStatistics());
+            }
+        } catch (IOException | RuntimeException e) {
+            result.error = e.getMessage() == null ? e.toString() : e.getMessage();
+            System.err.println("ERROR: " + file.getName() + ": " + result.error);
+        }
+        return result;
+    }
+
+    private boolean writeMetrics(PipelineMetrics metrics) {
+        OutputHandler.printMetrics(metrics);
+        try {
+            metrics.writeTo(metricsFile.toPath());
+            System.out.println("Metrics ditulis ke " + metricsFile);
+            return true;
+        } catch (IOException e) {
+            System.err.println("ERROR: Gagal menulis metrics ke " + metricsFile + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Decode, kompresi, dan encode berjalan bergantian per pita, sehingga hanya total waktu yang dicatat
+    private Result compressTiled(File file, Result result) throws IOException {
+        String name = file.getName();
+        File outputFile = new File(outputDir, baseName(file) + ".png");
+        TiledCompressor tiled = new TiledCompressor(errorMetric, threshold, minBlockSize, tileSize);
+        tiled.setParallel(parallelBuild, parallelCutoff);
+
+        long start = System.nanoTime();
+        tiled.compress(file, outputFile);
+        result.compressNanos = System.nanoTime() - start;
+        result.width = tiled.getWidth();
+        result.height = tiled.getHeight();
+        result.inputSize = file.length();
+        result.outputSize = outputFile.length();
+        System.out.printf("%s %dx%d tiled %d, total %.1f ms, %d -> %d bytes%n", name, result.width, result.height,
+                tileSize, result.compressNanos / 1e6, result.inputSize, result.outputSize);
+        return result;
+    }
+
+    private void printSummary(List<Result> results, long wallNanos) {
+        int succeeded = 0;
+        double megapixels = 0, decodeMillis = 0, compressMillis = 0, encodeMillis = 0;
+        for (Result result : results) {
+            if (result.error != null) continue;
+            succeeded++;
+            megapixels += (double) result.width * result.height / 1_000_000.0;
+            decodeMillis += result.decodeNanos / 1e6;
+            compressMillis += result.compressNanos / 1e6;
+            encodeMillis += result.encodeNanos / 1e6;
+        }
+        double wallSeconds = wallNanos / 1e9;
+
+        String[] headers = {"Parameter", "Nilai"};
+        int[] columnWidths = {30, 20};
+        String[][] data = {
+            {"Images (ok/failed)", succeeded + "/" + (results.size() - succeeded)},
+            {"Wall time", String.format("%.2f s", wallSeconds)},
+            {"Throughput", String.format("%.2f images/s", succeeded / wallSeconds)},
+            {"Pixel throughput", String.format("%.2f MP/s", megapixels / wallSeconds)},
+            // Jumlah waktu wall per gambar dari semua worker, bukan waktu CPU (build paralel memakai thread lain)
+            {"Total decode (wall, summed)", String.format("%.1f ms", decodeMillis)},
+            {"Total compress (wall, summed)", String.format("%.1f ms", compressMillis)},
+            {"Total encode (wall, summed)", String.format("%.1f ms", encodeMillis)}
+        };
+        System.out.println();
+        OutputHandler.printTable(headers, data, columnWidths);
+    }
+}
@@ -0,0 +1,36 @@
+import java.io.IOException;
+import java.util.Random;
+
+// Titik masuk benchmark; semua kasus, termasuk perbandingan A/B, ada di BenchmarkSuite
+public class Benchmark {
+    public static void main(String[] args) throws IOException {
+        BenchmarkSuite.main(args);
+    }
+
+    // Gambar sintetis: gradien di kiri atas, noise di kanan atas, blok warna rata di bawah
+    public static RGBMatrix createSyntheticImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        RGBMatrix rgbMatrix = new RGBMatrix(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r, g, b;
+                if (y < height / 2 && x < width / 2) {
+                    r = x * 255 / width;
+                    g = y * 255 / height;
+                    b = (x + y) * 255 / (width + height);
+                } else if (y < height / 2) {
+                    r = random.nextInt(256);
+                    g = random.nextInt(256);
+                    b = random.nextInt(256);
+                } else {
+                    int block = ((x / 64) + (y / 64)) % 4;
+                    r = block * 60;
+                    g = 255 - block * 60;
+                    b = 128;
+                }
+                rgbMatrix.setPixel(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return rgbMatrix;
+    }
+}
@@ -0,0 +1,690 @@
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+
+/**
+ * Harness micro-benchmark untuk hot path utama: buildTree, calculateError, copy, konversi ke
+ * BufferedImage, render, encode/decode .qtree, dan findOptimalParameters. Input berupa gambar sintetis deterministik.
+ * Hasil ditulis sebagai TSV berurutan tetap (satu baris per benchmark) agar bisa di-diff antar commit;
+ * kolom "result" berisi checksum hasil operasi sehingga perubahan perilaku juga terlihat, kolom "alloc"
+ * berisi byte yang dialokasikan thread pengukur per operasi (alokasi thread fork-join tidak terhitung).
+ *
+ * Perbandingan A/B (scan vs integral image/piramida, kernel skalar vs vektor, sekuensial vs paralel, eksak vs
+ * sampel, build ulang vs cut, dengan/tanpa cache blok, render per piksel vs langsung, decode berurutan vs per
+ * source region) berupa varian: params "<dasar>@<varian>" diukur dengan cara yang sama seperti kasus "<dasar>",
+ * dan --variants membandingkannya.
+ *
+ *   java Benchmark --suite [--out file.tsv] [--filter teks] [--quick]
+ *   java Benchmark --compare base.tsv new.tsv
+ *   java Benchmark --variants file.tsv
+ *   java Benchmark --check
+ */
+public class BenchmarkSuite {
+    private static final int[] BUILD_SIZES = {256, 512, 1024};
+    private static final int[] ERROR_BLOCK_SIZES = {8, 64, 256};
+    private static final String[] PATTERNS = {"gradient", "noise", "flat", "mixed"};
+    private static final double[] SWEEP_SCALES = {0.1, 0.25, 0.5, 1.0, 2.0, 4.0};
+    private static final int SWEEP_SIZE = 512;
+    private static final int VARIANT_SIZE = 1024;
+    private static final int BAND_IMAGE_WIDTH = 1024, BAND_IMAGE_HEIGHT = 2048;
+    private static final int[] BAND_ROWS = {1024, 256, 64};
+    private static final double[] CHECK_SCALES = {0.5, 1.0, 2.0};
+    private static final double CHECK_MAX_DIFF_PERCENT = 1.0;
+    private static final long SEED = 42L;
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long iterationNanos;
+    private final String filter;
+    private final List<Case> cases = new ArrayList<>();
+    private final Map<String, RGBMatrix> images = new LinkedHashMap<>();
+    private File bandImageFile;
+    // Menampung hasil setiap operasi agar JIT tidak membuang pekerjaan yang diukur
+    private static volatile long sink;
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    // prepare() dan check() tidak ikut diukur; run() mengembalikan checksum murah, check() boleh menggantinya
+    // dengan checksum lengkap (mis. seluruh struktur pohon) dari state invocation terakhir
+    interface Operation {
+        default Object prepare() {
+            return null;
+        }
+
+        long run(Object state);
+
+        default long check(Object state, long result) {
+            return result;
+        }
+    }
+
+    private static class Case {
+        final String name;
+        final String params;
+        final int operationsPerInvocation;
+        final Operation operation;
+
+        Case(String name, String params, int operationsPerInvocation, Operation operation) {
+            this.name = name;
+            this.params = params;
+            this.operationsPerInvocation = operationsPerInvocation;
+            this.operation = operation;
+        }
+    }
+
+    public BenchmarkSuite(int warmupIterations, int measuredIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--compare")) {
+            if (args.length != 3) {
+                throw new IllegalArgumentException("Penggunaan: --compare base.tsv new.tsv");
+            }
+            compare(new File(args[1]), new File(args[2]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--check")) {
+            if (!checkSampledSplit()) System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--variants")) {
+            if (args.length != 2) {
+                throw new IllegalArgumentException("Penggunaan: --variants file.tsv");
+            }
+            printVariants(readResults(new File(args[1])));
+            return;
+        }
+
+        String outputPath = null;
+        String filter = null;
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--suite" -> { }
+                case "--out" -> outputPath = args[++i];
+                case "--filter" -> filter = args[++i];
+                case "--quick" -> quick = true;
+                default -> throw new IllegalArgumentException("Argumen tidak dikenali: " + args[i]);
+            }
+        }
+
+        BenchmarkSuite suite = quick ? new BenchmarkSuite(1, 3, 50, filter) : new BenchmarkSuite(3, 5, 200, filter);
+        suite.registerDefaultCases();
+        if (outputPath == null) {
+            suite.run(System.out);
+        } else {
+            try (PrintStream out = new PrintStream(new File(outputPath), "UTF-8")) {
+                suite.run(out);
+            }
+            System.out.println("Hasil ditulis ke " + outputPath);
+            printVariants(readResults(new File(outputPath)));
+        }
+    }
+
+    public void registerDefaultCases() {
+        for (int size : BUILD_SIZES) {
+            for (int i = 1; i <= 5; i++) {
+                ErrorMetric errorMetric = ErrorMetricFactory.createErrorMetric(i);
+                double threshold = CompressionController.getDefaultThreshold(errorMetric);
+                RGBMatrix source = image("mixed", size);
+                String params = metricKey(i) + "/mixed/" + size;
+                add("buildTree", params, 1, buildOperation(source, errorMetric, threshold, quadTree -> { }));
+                if (size == VARIANT_SIZE) {
+                    add("buildTree", params + "@parallel", 1,
+                            buildOperation(source, errorMetric, threshold, quadTree -> quadTree.setParallel(true)));
+                    add("buildTree", params + "@sampled", 1, buildOperation(source, errorMetric, threshold,
+                            quadTree -> quadTree.setSampledSplit(new SampledSplit())));
+                }
+            }
+        }
+
+        for (String pattern : PATTERNS) {
+            RGBMatrix source = image(pattern, 512);
+            for (int i = 1; i <= 5; i++) {
+                ErrorMetric errorMetric = ErrorMetricFactory.createErrorMetric(i);
+                for (int blockSize : ERROR_BLOCK_SIZES) {
+                    int blocks = (512 / blockSize) * (512 / blockSize);
+                    add("calculateError", metricKey(i) + "/" + pattern + "/" + blockSize, blocks,
+                            state -> evaluateBlocks(source, errorMetric, blockSize));
+                }
+            }
+        }
+
+        // Semua blok quadtree penuh (hingga 4x4) per metrik; integral image dan piramida min/max dibangun ulang
+        // di setiap invocation agar biaya pembuatannya ikut terukur. @scan memakai jalur scan ChannelKernels
+        RGBMatrix pyramidSource = image("mixed", VARIANT_SIZE).copy();
+        ChannelKernels vector = ChannelKernels.vector();
+        for (int i = 1; i <= 5; i++) {
+            ErrorMetric errorMetric = ErrorMetricFactory.createErrorMetric(i);
+            String params = metricKey(i) + "/mixed/" + VARIANT_SIZE;
+            add("errorPyramid", params, 1, pyramidOperation(pyramidSource, errorMetric, true,
+                    MinMaxPyramid.DEFAULT_MAX_LEVEL, ChannelKernels.get()));
+            add("errorPyramid", params + "@scan", 1,
+                    pyramidOperation(pyramidSource, errorMetric, false, 0, ChannelKernels.scalar()));
+            if (vector != null && i != 4) {
+                add("errorPyramid", params + "@scan-vector", 1,
+                        pyramidOperation(pyramidSource, errorMetric, false, 0, vector));
+            }
+        }
+
+        int[] kernelPixels = image("mixed", VARIANT_SIZE).heapPixelsOrNull();
+        String[] kernelNames = {"sums", "absoluteSums", "minMax"};
+        for (int k = 0; k < kernelNames.length; k++) {
+            String name = "ChannelKernels." + kernelNames[k];
+            String params = "mixed/" + VARIANT_SIZE;
+            add(name, params, 1, kernelOperation(ChannelKernels.scalar(), k, kernelPixels, VARIANT_SIZE));
+            if (vector != null) {
+                add(name, params + "@vector", 1, kernelOperation(vector, k, kernelPixels, VARIANT_SIZE));
+            }
+        }
+
+        // Satu pohon per threshold seperti pencarian target: pohon penuh sekali lalu cut (default),
+        // build ulang per threshold, dan build ulang dengan BlockStatisticsCache
+        RGBMatrix sweepSource = image("mixed", SWEEP_SIZE).copy();
+        for (int i = 1; i <= 5; i++) {
+            ErrorMetric errorMetric = ErrorMetricFactory.createErrorMetric(i);
+            String params = metricKey(i) + "/mixed/" + SWEEP_SIZE;
+            add("thresholdSweep", params, SWEEP_SCALES.length, sweepOperation(sweepSource, errorMetric, true, false));
+            add("thresholdSweep", params + "@rebuild", SWEEP_SCALES.length,
+                    sweepOperation(sweepSource, errorMetric, false, false));
+            add("thresholdSweep", params + "@rebuild-cache", SWEEP_SCALES.length,
+                    sweepOperation(sweepSource, errorMetric, false, true));
+        }
+
+        // Kolom alloc dibagi jumlah node (result) = byte per node arena
+        for (int i = 1; i <= 5; i++) {
+            ErrorMetric errorMetric = ErrorMetricFactory.createErrorMetric(i);
+            RGBMatrix source = image("mixed", VARIANT_SIZE);
+            add("buildFullTree", metricKey(i) + "/mixed/" + VARIANT_SIZE, 1, state -> {
+                QuadTree quadTree = new QuadTree(source, errorMetric, 0.0, 4);
+                quadTree.buildFullTree();
+                return quadTree.getNodeCount();
+            });
+        }
+
+        for (int size : BUILD_SIZES) {
+            RGBMatrix source = image("mixed", size);
+            add("RGBMatrix.copy", "mixed/" + size, 1, state -> source.copy().getRGB(size - 1, size - 1));
+            add("convertToBufferedImage", "mixed/" + size, 1,
+                    state -> OutputHandler.convertToBufferedImage(source).getRGB(size - 1, size - 1));
+        }
+
+        for (int size : BUILD_SIZES) {
+            QuadTree quadTree = new QuadTree(image("mixed", size).copy(), ErrorMetricFactory.createErrorMetric(1),
+                    CompressionController.getDefaultThreshold(ErrorMetricFactory.createErrorMetric(1)), 4);
+            quadTree.buildTree();
+            byte[] encoded = encodeTree(quadTree);
+            add("QuadTree.render", "variance/mixed/" + size, 1, state -> quadTree.render().getRGB(size - 1, size - 1));
+            // Jalur render lama: setPixel per piksel ke RGBMatrix lalu convertToBufferedImage
+            add("QuadTree.render", "variance/mixed/" + size + "@setPixel", 1, state -> {
+                RGBMatrix output = new RGBMatrix(size, size);
+                paintPerPixel(quadTree.getRoot(), output);
+                return OutputHandler.convertToBufferedImage(output).getRGB(size - 1, size - 1);
+            });
+            add("QuadTreeCodec.write", "variance/mixed/" + size, 1, state -> encodeTree(quadTree).length);
+            add("QuadTreeCodec.read", "variance/mixed/" + size, 1, state -> {
+                try {
+                    return QuadTreeCodec.read(Channels.newChannel(new ByteArrayInputStream(encoded))).getNodeCount();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        // Decode per pita (TiledCompressor, cache .rgbm): satu decode berurutan vs source region per pita,
+        // yang men-decode ulang PNG dari awal untuk setiap pita
+        for (int bandRows : BAND_ROWS) {
+            String params = "png/" + BAND_IMAGE_WIDTH + "x" + BAND_IMAGE_HEIGHT + "/" + bandRows;
+            add("BandImageReader.read", params, 1, bandOperation(bandRows, false));
+            add("BandImageReader.read", params + "@region", 1, bandOperation(bandRows, true));
+        }
+
+        for (int i = 1; i <= 5; i++) {
+            ErrorMetric errorMetric = ErrorMetricFactory.createErrorMetric(i);
+            RGBMatrix source = image("mixed", 256);
+            add("findOptimalParameters", metricKey(i) + "/mixed/256/png/0.5", 1, state -> {
+                CompressionController controller = new CompressionController();
+                controller.setVerbose(false);
+                CompressionController.OptimalParameters parameters =
+                        controller.findOptimalParameters(source, errorMetric, 0.5, "png");
+                return Double.doubleToLongBits(parameters.threshold);
+            });
+        }
+    }
+
+    private void add(String name, String params, int operationsPerInvocation, Operation operation) {
+        String key = name + "/" + params;
+        if (filter != null && !key.contains(filter)) return;
+        cases.add(new Case(name, params, operationsPerInvocation, operation));
+    }
+
+    // Matriks disalin di prepare() sehingga integral image ikut dibangun di setiap build yang diukur
+    private static Operation buildOperation(RGBMatrix source, ErrorMetric errorMetric, double threshold,
+                                            Consumer<QuadTree> configure) {
+        return new Operation() {
+            public Object prepare() {
+                QuadTree quadTree = new QuadTree(source.copy(), errorMetric, threshold, 16);
+                configure.accept(quadTree);
+                return quadTree;
+            }
+
+            public long run(Object state) {
+                QuadTree quadTree = (QuadTree) state;
+                quadTree.buildTree();
+                return quadTree.getNodeCount() * 31L + quadTree.getMaxDepth();
+            }
+
+            public long check(Object state, long result) {
+                return treeChecksum(((QuadTree) state).getRoot());
+            }
+        };
+    }
+
+    private static Operation pyramidOperation(RGBMatrix source, ErrorMetric errorMetric, boolean integralImage,
+                                              int minMaxLevels, ChannelKernels kernels) {
+        return new Operation() {
+            public Object prepare() {
+                source.setIntegralImageEnabled(false);
+                source.setIntegralImageEnabled(integralImage);
+                source.setMinMaxLevels(minMaxLevels);
+                ChannelKernels.use(kernels);
+                return null;
+            }
+
+            public long run(Object state) {
+                return evaluatePyramid(source, errorMetric);
+            }
+        };
+    }
+
+    private static Operation kernelOperation(ChannelKernels kernels, int kernel, int[] pixels, int size) {
+        int[] pivots = {127, 127, 127};
+        long[] out = new long[ChannelKernels.SUMS];
+        return state -> {
+            if (kernel == 0) kernels.sums(pixels, 0, size, size, size, out);
+            else if (kernel == 1) kernels.absoluteSums(pixels, 0, size, size, size, pivots, out);
+            else return kernels.minMax(pixels, 0, size, size, size);
+            return Arrays.hashCode(out);
+        };
+    }
+
+    private static Operation sweepOperation(RGBMatrix source, ErrorMetric errorMetric, boolean cut, boolean cache) {
+        double defaultThreshold = CompressionController.getDefaultThreshold(errorMetric);
+        return new Operation() {
+            public Object prepare() {
+                source.setBlockStatisticsCache(cache ? new BlockStatisticsCache() : null);
+                return new QuadTree[SWEEP_SCALES.length];
+            }
+
+            public long run(Object state) {
+                QuadTree[] trees = (QuadTree[]) state;
+                QuadTree fullTree = null;
+                if (cut) {
+                    fullTree = new QuadTree(source, errorMetric, 0.0, 4);
+                    fullTree.buildFullTree();
+                }
+                long nodes = 0;
+                for (int j = 0; j < trees.length; j++) {
+                    if (cut) {
+                        trees[j] = fullTree.cut(defaultThreshold * SWEEP_SCALES[j]);
+                    } else {
+                        trees[j] = new QuadTree(source, errorMetric, defaultThreshold * SWEEP_SCALES[j], 4);
+                        trees[j].buildTree();
+                    }
+                    nodes += trees[j].getNodeCount();
+                }
+                return nodes;
+            }
+
+            public long check(Object state, long result) {
+                source.setBlockStatisticsCache(null);
+                long checksum = 0;
+                for (QuadTree quadTree : (QuadTree[]) state) {
+                    checksum = checksum * 31 + treeChecksum(quadTree.getRoot());
+                }
+                return checksum;
+            }
+        };
+    }
+
+    private Operation bandOperation(int bandRows, boolean regions) {
+        return state -> {
+            long[] checksum = {0};
+            BandImageReader.BandConsumer consumer = (rgb, y, rows) -> {
+                for (int i = 0; i < rows * BAND_IMAGE_WIDTH; i++) {
+                    checksum[0] = checksum[0] * 31 + rgb[i];
+                }
+            };
+            try (BandImageReader reader = new BandImageReader(bandImageFile())) {
+                if (regions) reader.readRegions(bandRows, consumer);
+                else reader.read(bandRows, consumer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return checksum[0];
+        };
+    }
+
+    // PNG sintetis ditulis sekali ke file sementara saat kasus BandImageReader pertama dijalankan
+    private File bandImageFile() throws IOException {
+        if (bandImageFile == null) {
+            File file = File.createTempFile("benchmark-band", ".png");
+            file.deleteOnExit();
+            RGBMatrix source = createPatternImage("mixed", BAND_IMAGE_WIDTH, BAND_IMAGE_HEIGHT, SEED);
+            ImageIO.write(OutputHandler.convertToBufferedImage(source), "png", file);
+            bandImageFile = file;
+        }
+        return bandImageFile;
+    }
+
+    private static byte[] encodeTree(QuadTree quadTree) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            QuadTreeCodec.write(quadTree, Channels.newChannel(out), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static long evaluateBlocks(RGBMatrix rgbMatrix, ErrorMetric errorMetric, int blockSize) {
+        long checksum = 0;
+        for (int y = 0; y + blockSize <= rgbMatrix.getHeight(); y += blockSize) {
+            for (int x = 0; x + blockSize <= rgbMatrix.getWidth(); x += blockSize) {
+                double error = errorMetric.calculateError(rgbMatrix, x, y, blockSize, blockSize);
+                checksum = checksum * 31 + Double.doubleToLongBits(error);
+            }
+        }
+        return checksum;
+    }
+
+    // Error dan warna rata-rata setiap blok di semua level quadtree penuh (hingga blok 4x4). Error dibulatkan
+    // ke float karena integral image dan scan menjumlahkan dengan urutan berbeda (selisih ~1e-12)
+    private static long evaluatePyramid(RGBMatrix rgbMatrix, ErrorMetric errorMetric) {
+        int width = rgbMatrix.getWidth();
+        int height = rgbMatrix.getHeight();
+        long checksum = 0;
+        for (int size = Integer.highestOneBit(Math.min(width, height)); size >= 4; size /= 2) {
+            for (int y = 0; y + size <= height; y += size) {
+                for (int x = 0; x + size <= width; x += size) {
+                    int color = QuadTreeNode.calculateAverageColor(rgbMatrix, x, y, size, size);
+                    float error = (float) errorMetric.calculateError(rgbMatrix, x, y, size, size);
+                    checksum = (checksum * 31 + color) * 31 + Float.floatToIntBits(error);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    // Tidak bergantung pada urutan node di arena, sehingga build paralel dan sekuensial bisa dibandingkan
+    private static long treeChecksum(QuadTreeNode node) {
+        long checksum = ((((long) node.getX() * 31 + node.getY()) * 31 + node.getWidth()) * 31 + node.getHeight())
+                * 31 + node.getAverageColorRGB();
+        if (node.isLeaf()) return checksum;
+        checksum = checksum * 31 + treeChecksum(node.getTopLeft());
+        checksum = checksum * 31 + treeChecksum(node.getTopRight());
+        checksum = checksum * 31 + treeChecksum(node.getBottomLeft());
+        return checksum * 31 + treeChecksum(node.getBottomRight());
+    }
+
+    private static void paintPerPixel(QuadTreeNode node, RGBMatrix output) {
+        if (node.isLeaf()) {
+            for (int y = node.getY(); y < node.getY() + node.getHeight(); y++) {
+                for (int x = node.getX(); x < node.getX() + node.getWidth(); x++) {
+                    output.setPixel(x, y, node.getAverageColorRGB());
+                }
+            }
+            return;
+        }
+        paintPerPixel(node.getTopLeft(), output);
+        paintPerPixel(node.getTopRight(), output);
+        paintPerPixel(node.getBottomLeft(), output);
+        paintPerPixel(node.getBottomRight(), output);
+    }
+
+    private static String metricKey(int method) {
+        switch (method) {
+            case 1: return "variance";
+            case 2: return "mad";
+            case 3: return "maxdiff";
+            case 4: return "entropy";
+            case 5: return "ssim";
+            default: throw new IllegalArgumentException("Unknown error method: " + method);
+        }
+    }
+
+    private RGBMatrix image(String pattern, int size) {
+        return images.computeIfAbsent(pattern + "/" + size, key -> createPatternImage(pattern, size, size, SEED));
+    }
+
+    public static RGBMatrix createPatternImage(String pattern, int width, int height, long seed) {
+        if (pattern.equals("mixed")) return Benchmark.createSyntheticImage(width, height, seed);
+
+        Random random = new Random(seed);
+        RGBMatrix rgbMatrix = new RGBMatrix(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb;
+                switch (pattern) {
+                    case "gradient" -> rgb = ((x * 255 / width) << 16) | ((y * 255 / height) << 8)
+                            | ((x + y) * 255 / (width + height));
+                    case "noise" -> rgb = random.nextInt(1 << 24);
+                    case "flat" -> rgb = 0x4080C0;
+                    default -> throw new IllegalArgumentException("Pola tidak dikenal: " + pattern);
+                }
+                rgbMatrix.setPixel(x, y, rgb);
+            }
+        }
+        return rgbMatrix;
+    }
+
+    public void run(PrintStream out) {
+        out.println("# java.version=" + System.getProperty("java.version")
+                + " cpus=" + Runtime.getRuntime().availableProcessors()
+                + " warmup=" + warmupIterations + " iterations=" + measuredIterations
+                + " iteration_ms=" + iterationNanos / 1_000_000L
+                + " kernels=" + ChannelKernels.get().getName());
+        out.println("benchmark\tparams\tunit\tmean\tstddev\tmin\tresult\talloc");
+        ChannelKernels defaultKernels = ChannelKernels.get();
+        for (Case benchmarkCase : cases) {
+            for (int i = 0; i < warmupIterations; i++) {
+                measureIteration(benchmarkCase);
+            }
+            double[] samples = new double[measuredIterations];
+            long result = 0;
+            double allocated = 0;
+            for (int i = 0; i < measuredIterations; i++) {
+                long[] measured = measureIteration(benchmarkCase);
+                samples[i] = (double) measured[0] / (measured[1] * benchmarkCase.operationsPerInvocation);
+                result = measured[2];
+                allocated += (double) measured[3] / (measured[1] * benchmarkCase.operationsPerInvocation)
+                        / measuredIterations;
+            }
+            ChannelKernels.use(defaultKernels);
+
+            double mean = 0, min = Double.MAX_VALUE;
+            for (double sample : samples) {
+                mean += sample / samples.length;
+                min = Math.min(min, sample);
+            }
+            double variance = 0;
+            for (double sample : samples) {
+                variance += (sample - mean) * (sample - mean) / samples.length;
+            }
+            out.printf("%s\t%s\tns/op\t%.1f\t%.1f\t%.1f\t%016x\t%s%n", benchmarkCase.name, benchmarkCase.params,
+                    mean, Math.sqrt(variance), min, result, allocated < 0 ? "-" : String.format("%.0f", allocated));
+            out.flush();
+        }
+    }
+
+    // Mengulang operasi sampai satu iterasi mencapai iterationNanos; hanya run() yang diukur.
+    // Mengembalikan {total nanodetik, jumlah invocation, checksum terakhir, total byte dialokasikan (-1 = tidak ada)}.
+    private long[] measureIteration(Case benchmarkCase) {
+        long elapsed = 0;
+        long invocations = 0;
+        long allocated = 0;
+        long result;
+        Object state;
+        do {
+            state = benchmarkCase.operation.prepare();
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            result = benchmarkCase.operation.run(state);
+            elapsed += System.nanoTime() - start;
+            allocated += allocatedBytes() - allocatedBefore;
+            invocations++;
+        } while (elapsed < iterationNanos);
+        result = benchmarkCase.operation.check(state, result);
+        sink += result;
+        return new long[]{elapsed, invocations, result, THREADS == null ? -1 : allocated};
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // Split sampel vs eksak pada jalur scan (tanpa integral image dan piramida). Metrik yang tidak bisa diperkirakan
+    // dari sampel harus menghasilkan pohon identik; metrik lain harus lolos audit toleransi (atau dibangun ulang
+    // eksak) dan berbeda paling banyak CHECK_MAX_DIFF_PERCENT piksel dari render mode eksak
+    static boolean checkSampledSplit() {
+        CLIUtils.printSectionHeader("SAMPLED SPLIT CHECK");
+        String[] headers = {"Case", "Sampled", "Fallback", "Audit diff", "Rebuilt", "Diff px", "OK"};
+        int[] columnWidths = {30, 9, 9, 11, 8, 9, 5};
+        List<String[]> rows = new ArrayList<>();
+        boolean passed = true;
+        for (String pattern : new String[]{"mixed", "gradient", "noise"}) {
+            RGBMatrix source = createPatternImage(pattern, VARIANT_SIZE, VARIANT_SIZE, SEED);
+            source.setIntegralImageEnabled(false);
+            source.setMinMaxLevels(0);
+            for (int i = 1; i <= 5; i++) {
+                ErrorMetric errorMetric = ErrorMetricFactory.createErrorMetric(i);
+                for (double scale : CHECK_SCALES) {
+                    double threshold = CompressionController.getDefaultThreshold(errorMetric) * scale;
+                    QuadTree exact = new QuadTree(source, errorMetric, threshold, 4);
+                    exact.buildTree();
+                    SampledSplit sampledSplit = new SampledSplit();
+                    QuadTree sampled = new QuadTree(source, errorMetric, threshold, 4);
+                    sampled.setSampledSplit(sampledSplit);
+                    sampled.buildTree();
+
+                    int[] exactPixels = ((DataBufferInt) exact.render().getRaster().getDataBuffer()).getData();
+                    int[] sampledPixels = ((DataBufferInt) sampled.render().getRaster().getDataBuffer()).getData();
+                    long differing = 0;
+                    for (int p = 0; p < exactPixels.length; p++) {
+                        if (exactPixels[p] != sampledPixels[p]) differing++;
+                    }
+                    double differingPercent = differing * 100.0 / exactPixels.length;
+                    SampledSplit.Statistics statistics = sampled.getSampledSplitStatistics();
+                    boolean identical = treeChecksum(exact.getRoot()) == treeChecksum(sampled.getRoot());
+                    boolean ok = errorMetric.isSampleEstimable()
+                            ? !sampledSplit.isExceeded(statistics) || statistics.isRebuilt() && identical
+                            : statistics.getSampledDecisions() == 0 && identical;
+                    ok &= differingPercent <= CHECK_MAX_DIFF_PERCENT;
+                    passed &= ok;
+                    rows.add(new String[]{
+                        metricKey(i) + "/" + pattern + " x" + scale,
+                        String.valueOf(statistics.getSampledDecisions()),
+                        String.valueOf(statistics.getExactFallbacks()),
+                        statistics.getAuditMismatches() + "/" + statistics.getAudits(),
+                        statistics.isRebuilt() ? "yes" : "no",
+                        String.format("%.2f%%", differingPercent),
+                        ok ? "yes" : "NO"
+                    });
+                }
+            }
+        }
+        OutputHandler.printTable(headers, rows.toArray(new String[0][]), columnWidths);
+        System.out.println(passed ? "Semua kasus lolos." : "Ada kasus yang gagal.");
+        return passed;
+    }
+
+    private static void compare(File baseFile, File newFile) throws IOException {
+        Map<String, String[]> base = readResults(baseFile);
+        Map<String, String[]> current = readResults(newFile);
+
+        String[] headers = {"Benchmark", "Base (ns/op)", "New (ns/op)", "Ratio", "Result"};
+        int[] columnWidths = {52, 14, 14, 8, 8};
+        List<String[]> rows = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : current.entrySet()) {
+            String[] before = base.get(entry.getKey());
+            String[] after = entry.getValue();
+            if (before == null) {
+                rows.add(new String[]{entry.getKey(), "-", after[3], "-", "new"});
+                continue;
+            }
+            double ratio = Double.parseDouble(after[3]) / Double.parseDouble(before[3]);
+            rows.add(new String[]{entry.getKey(), before[3], after[3], String.format("%.2fx", ratio),
+                    before[6].equals(after[6]) ? "same" : "CHANGED"});
+        }
+        OutputHandler.printTable(headers, rows.toArray(new String[0][]), columnWidths);
+    }
+
+    // Setiap varian "<dasar>@<varian>" dibandingkan dengan kasus "<dasar>" di file yang sama
+    private static void printVariants(Map<String, String[]> results) {
+        String[] headers = {"Benchmark", "Variant", "ns/op", "Speedup", "alloc B/op", "Result"};
+        int[] columnWidths = {44, 14, 14, 9, 12, 8};
+        List<String[]> rows = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : results.entrySet()) {
+            int at = entry.getKey().indexOf('@');
+            if (at < 0) continue;
+            String baseKey = entry.getKey().substring(0, at);
+            String[] base = results.get(baseKey);
+            if (base == null) continue;
+            if (rows.isEmpty() || !rows.get(rows.size() - 1)[0].equals(baseKey)) {
+                rows.add(new String[]{baseKey, "-", base[3], "1.00x", allocation(base), "-"});
+            }
+            String[] variant = entry.getValue();
+            double speedup = Double.parseDouble(base[3]) / Double.parseDouble(variant[3]);
+            rows.add(new String[]{baseKey, entry.getKey().substring(at + 1), variant[3],
+                    String.format("%.2fx", speedup), allocation(variant),
+                    base[6].equals(variant[6]) ? "same" : "CHANGED"});
+        }
+        if (rows.isEmpty()) return;
+        OutputHandler.printTable(headers, rows.toArray(new String[0][]), columnWidths);
+    }
+
+    // File lama (sebelum kolom alloc) hanya punya 7 kolom
+    private static String allocation(String[] columns) {
+        return columns.length > 7 ? columns[7] : "-";
+    }
+
+    private static Map<String, String[]> readResults(File file) throws IOException {
+        Map<String, String[]> results = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file.toPath())) {
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("benchmark\t")) continue;
+            String[] columns = line.split("\t");
+            if (columns.length < 7) {
+                throw new IOException("Baris TSV tidak valid di " + file + ": " + line);
+            }
+            results.put(columns[0] + "/" + columns[1], columns);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache LRU statistik blok (x, y, w, h) yang dipakai bersama oleh semua ErrorMetric (lewat QuadTree)
+ * dan perhitungan warna rata-rata node. Satu entri menyimpan satu jenis statistik: rata-rata RGB blok
+ * (AVERAGE) atau error dari satu kelas metrik, sehingga pohon yang dibangun berulang kali dari matriks
+ * yang sama (mis. pencarian threshold tanpa pohon penuh) tidak menghitung ulang blok yang sudah dihitung.
+ *
+ * Memori dibatasi jumlah entri; entri disimpan di array primitif (56 byte/entri). Cache dibagi
+ * beberapa segmen dengan kunci dan urutan LRU masing-masing agar build paralel tidak antre satu kunci.
+ */
+public class BlockStatisticsCache {
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+    public static final int DEFAULT_MIN_AREA = 256;
+    public static final int AVERAGE = 0;
+    private static final int SEGMENT_BITS = 4;
+    private static final int MAX_DIMENSION = (1 << 28) - 1;
+    private static final int MAX_KIND = 255;
+    // Id per kelas metrik dibagi semua cache; metrik di repo ini tidak punya parameter
+    private static final Map<Class<?>, Integer> METRIC_KINDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_KIND = new AtomicInteger(AVERAGE + 1);
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final int capacity;
+    private final int minArea;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BlockStatisticsCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MIN_AREA);
+    }
+
+    // Blok lebih kecil dari minArea piksel tidak di-cache: menghitungnya ulang lebih murah daripada lookup,
+    // dan blok kecil adalah hampir semua node sehingga hanya akan mendesak keluar blok besar yang mahal
+    public BlockStatisticsCache(int capacity, int minArea) {
+        if (capacity < segments.length) {
+            throw new IllegalArgumentException("Kapasitas cache statistik blok minimal " + segments.length + " entri.");
+        }
+        if (minArea < 1) {
+            throw new IllegalArgumentException("Luas blok minimum cache harus positif.");
+        }
+        this.capacity = capacity;
+        this.minArea = minArea;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(capacity / segments.length + (i < capacity % segments.length ? 1 : 0));
+        }
+    }
+
+    public static int kindOf(ErrorMetric errorMetric) {
+        int kind = METRIC_KINDS.computeIfAbsent(errorMetric.getClass(), type -> NEXT_KIND.getAndIncrement());
+        if (kind > MAX_KIND) {
+            throw new IllegalStateException("Terlalu banyak jenis metrik untuk cache statistik blok.");
+        }
+        return kind;
+    }
+
+    // Nilai pertama statistik, atau NaN bila belum ada di cache
+    public double get(int kind, int x, int y, int width, int height) {
+        if (!isCacheable(width, height)) return Double.NaN;
+        long position = position(x, y), size = size(kind, width, height);
+        double value = segment(position, size).get(position, size, null);
+        (Double.isNaN(value) ? misses : hits).increment();
+        return value;
+    }
+
+    // Menyalin statistik ke values (panjang 3); false bila belum ada di cache
+    public boolean get(int kind, int x, int y, int width, int height, double[] values) {
+        if (!isCacheable(width, height)) return false;
+        long position = position(x, y), size = size(kind, width, height);
+        boolean found = !Double.isNaN(segment(position, size).get(position, size, values));
+        (found ? hits : misses).increment();
+        return found;
+    }
+
+    public void put(int kind, int x, int y, int width, int height, double value) {
+        put(kind, x, y, width, height, value, 0, 0);
+    }
+
+    public void put(int kind, int x, int y, int width, int height, double[] values) {
+        put(kind, x, y, width, height, values[0], values[1], values[2]);
+    }
+
+    private void put(int kind, int x, int y, int width, int height, double a, double b, double c) {
+        if (!isCacheable(width, height) || Double.isNaN(a)) return;
+        long position = position(x, y), size = size(kind, width, height);
+        if (segment(position, size).put(position, size, a, b, c)) evictions.increment();
+    }
+
+    public void clear() {
+        for (Segment segment : segments) segment.clear();
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public int getCapacity() { return capacity; }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.size();
+        return size;
+    }
+
+    public double getHitRate() {
+        long hitCount = getHits(), total = hitCount + getMisses();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public static int getBytesPerEntry() {
+        return Segment.BYTES_PER_ENTRY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hit, %d miss (%.1f%%), %d eviction, %d/%d entri",
+                getHits(), getMisses(), 100.0 * getHitRate(), getEvictions(), size(), capacity);
+    }
+
+    public int getMinArea() { return minArea; }
+
+    private boolean isCacheable(int width, int height) {
+        return width <= MAX_DIMENSION && height <= MAX_DIMENSION && (long) width * height >= minArea;
+    }
+
+    private static long position(int x, int y) {
+        return (long) x << 32 | (y & 0xFFFFFFFFL);
+    }
+
+    private static long size(int kind, int width, int height) {
+        return (long) width << 36 | (long) height << 8 | kind;
+    }
+
+    private static int hash(long position, long size) {
+        long h = (position * 0x9E3779B97F4A7C15L) ^ (size * 0xC2B2AE3D27D4EB4FL);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Segment segment(long position, long size) {
+        return segments[hash(position, size) >>> (32 - SEGMENT_BITS)];
+    }
+
+    // Tabel hash berantai + daftar LRU berantai ganda, semuanya indeks int ke array entri
+    private static final class Segment {
+        static final int BYTES_PER_ENTRY = 2 * 8 + 3 * 8 + 3 * 4 + 4;
+        private static final int NONE = -1;
+
+        private static final int INITIAL_ENTRIES = 64;
+
+        // Array tumbuh dua kali lipat sampai capacity, jadi cache yang jarang dipakai tetap kecil
+        private final int capacity;
+        private long[] positions = new long[0], sizes = new long[0];
+        private double[] values = new double[0];
+        private int[] bucketNext = new int[0], newer = new int[0], older = new int[0];
+        private int[] buckets = {NONE};
+        private int count, newest = NONE, oldest = NONE;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void grow() {
+            int length = (int) Math.min(capacity, Math.max(INITIAL_ENTRIES, 2L * positions.length));
+            positions = Arrays.copyOf(positions, length);
+            sizes = Arrays.copyOf(sizes, length);
+            values = Arrays.copyOf(values, 3 * length);
+            bucketNext = Arrays.copyOf(bucketNext, length);
+            newer = Arrays.copyOf(newer, length);
+            older = Arrays.copyOf(older, length);
+            buckets = new int[Integer.highestOneBit(Math.max(1, length - 1)) << 1];
+            Arrays.fill(buckets, NONE);
+            for (int entry = 0; entry < count; entry++) {
+                int bucket = bucket(positions[entry], sizes[entry]);
+                bucketNext[entry] = buckets[bucket];
+                buckets[bucket] = entry;
+            }
+        }
+
+        synchronized double get(long position, long size, double[] target) {
+            int entry = find(position, size);
+            if (entry == NONE) return Double.NaN;
+            touch(entry);
+            if (target != null) System.arraycopy(values, 3 * entry, target, 0, 3);
+            return values[3 * entry];
+        }
+
+        // true bila entri lama dikeluarkan untuk memberi tempat
+        synchronized boolean put(long position, long size, double a, double b, double c) {
+            int entry = find(position, size);
+            boolean evicted = false;
+            if (entry == NONE) {
+                if (count == positions.length && count < capacity) grow();
+                if (count < positions.length) {
+                    entry = count++;
+                } else {
+                    entry = oldest;
+                    unlink(entry);
+                    removeFromBucket(entry);
+                    evicted = true;
+                }
+                positions[entry] = position;
+                sizes[entry] = size;
+                int bucket = bucket(position, size);
+                bucketNext[entry] = buckets[bucket];
+                buckets[bucket] = entry;
+                linkNewest(entry);
+            } else {
+                touch(entry);
+            }
+            values[3 * entry] = a;
+            values[3 * entry + 1] = b;
+            values[3 * entry + 2] = c;
+            return evicted;
+        }
+
+        synchronized void clear() {
+            if (count == 0) return;
+            Arrays.fill(buckets, NONE);
+            count = 0;
+            newest = oldest = NONE;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        private int bucket(long position, long size) {
+            return hash(position, size) & (buckets.length - 1);
+        }
+
+        private int find(long position, long size) {
+            for (int entry = buckets[bucket(position, size)]; entry != NONE; entry = bucketNext[entry]) {
+                if (positions[entry] == position && sizes[entry] == size) return entry;
+            }
+            return NONE;
+        }
+
+        private void removeFromBucket(int entry) {
+            int bucket = bucket(positions[entry], sizes[entry]);
+            if (buckets[bucket] == entry) {
+                buckets[bucket] = bucketNext[entry];
+                return;
+            }
+            for (int previous = buckets[bucket]; previous != NONE; previous = bucketNext[previous]) {
+                if (bucketNext[previous] == entry) {
+                    bucketNext[previous] = bucketNext[entry];
+                    return;
+                }
+            }
+        }
+
+        private void touch(int entry) {
+            if (entry == newest) return;
+            unlink(entry);
+            linkNewest(entry);
+        }
+
+        private void unlink(int entry) {
+            if (newer[entry] != NONE) older[newer[entry]] = older[entry]; else newest = older[entry];
+            if (older[entry] != NONE) newer[older[entry]] = newer[entry]; else oldest = newer[entry];
+        }
+
+        private void linkNewest(int entry) {
+            newer[entry] = NONE;
+            older[entry] = newest;
+            if (newest != NONE) newer[newest] = entry;
+            newest = entry;
+            if (oldest == NONE) oldest = entry;
+        }
+    }
+}
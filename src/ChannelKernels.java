@@ -0,0 +1,127 @@
+import java.util.Arrays;
+
+/**
+ * Reduksi per kanal atas blok piksel RGB terpak (0xRRGGBB, baris demi baris dengan stride) yang dipakai
+ * metrik error saat integral image / piramida min-max tidak tersedia: Σc dan Σc², Σ|c - pivot| dan jumlah
+ * piksel di atas pivot (untuk MAD), serta min/max per kanal.
+ *
+ * Semua hasil berupa bilangan bulat eksak, sehingga implementasi skalar dan Vector API
+ * (VectorChannelKernels, src-vector/) memberi nilai metrik yang persis sama. Implementasi vektor dimuat
+ * lewat refleksi bila modul jdk.incubator.vector ada (java --add-modules jdk.incubator.vector), tetapi
+ * hanya aktif dengan -Dquadtree.vector=true: di JDK 17 loop skalar yang divektorkan C2 masih lebih cepat
+ * (lihat Benchmark --suite --filter ChannelKernels).
+ */
+public abstract class ChannelKernels {
+    public static final int SUMS = 6;
+    public static final int ABSOLUTE_SUMS = 6;
+
+    private static final ChannelKernels SCALAR = new ScalarChannelKernels();
+    private static final ChannelKernels VECTOR = loadVector();
+    private static volatile ChannelKernels active =
+            VECTOR != null && Boolean.getBoolean("quadtree.vector") ? VECTOR : SCALAR;
+
+    public abstract String getName();
+
+    // out[0..2] = ΣR, ΣG, ΣB; out[3..5] = ΣR², ΣG², ΣB²
+    public abstract void sums(int[] pixels, int offset, int stride, int width, int height, long[] out);
+
+    // Per kanal c: out[c] = Σ|nilai - pivots[c]|, out[3 + c] = jumlah piksel dengan nilai > pivots[c]
+    public abstract void absoluteSums(int[] pixels, int offset, int stride, int width, int height, int[] pivots, long[] out);
+
+    // Min dan max per kanal, dipak seperti MinMaxPyramid.query()
+    public abstract long minMax(int[] pixels, int offset, int stride, int width, int height);
+
+    public static ChannelKernels get() {
+        return active;
+    }
+
+    public static ChannelKernels scalar() {
+        return SCALAR;
+    }
+
+    // null bila modul Vector API tidak tersedia
+    public static ChannelKernels vector() {
+        return VECTOR;
+    }
+
+    // Untuk benchmark A/B dalam satu JVM
+    static void use(ChannelKernels kernels) {
+        active = kernels;
+    }
+
+    private static ChannelKernels loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            return (ChannelKernels) Class.forName("VectorChannelKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // Versi RGBMatrix: blok dipotong ke batas matriks. Matriks tanpa array heap (MappedRGBMatrix)
+    // dibaca per baris ke buffer sementara, lalu hasil tiap baris dijumlahkan
+    public static void sums(RGBMatrix rgbMatrix, int x, int y, int width, int height, long[] out) {
+        int[] pixels = rgbMatrix.heapPixelsOrNull();
+        if (pixels != null && isInside(rgbMatrix, x, y, width, height)) {
+            active.sums(pixels, y * rgbMatrix.getWidth() + x, rgbMatrix.getWidth(), width, height, out);
+            return;
+        }
+        Arrays.fill(out, 0, SUMS, 0);
+        long[] partial = new long[SUMS];
+        forEachRowBlock(rgbMatrix, x, y, width, height, (kernels, rows, offset, stride, rowWidth, rowCount) -> {
+            kernels.sums(rows, offset, stride, rowWidth, rowCount, partial);
+            for (int i = 0; i < SUMS; i++) out[i] += partial[i];
+        });
+    }
+
+    public static void absoluteSums(RGBMatrix rgbMatrix, int x, int y, int width, int height, int[] pivots, long[] out) {
+        int[] pixels = rgbMatrix.heapPixelsOrNull();
+        if (pixels != null && isInside(rgbMatrix, x, y, width, height)) {
+            active.absoluteSums(pixels, y * rgbMatrix.getWidth() + x, rgbMatrix.getWidth(), width, height, pivots, out);
+            return;
+        }
+        Arrays.fill(out, 0, ABSOLUTE_SUMS, 0);
+        long[] partial = new long[ABSOLUTE_SUMS];
+        forEachRowBlock(rgbMatrix, x, y, width, height, (kernels, rows, offset, stride, rowWidth, rowCount) -> {
+            kernels.absoluteSums(rows, offset, stride, rowWidth, rowCount, pivots, partial);
+            for (int i = 0; i < ABSOLUTE_SUMS; i++) out[i] += partial[i];
+        });
+    }
+
+    public static long minMax(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
+        int[] pixels = rgbMatrix.heapPixelsOrNull();
+        if (pixels != null && isInside(rgbMatrix, x, y, width, height)) {
+            return active.minMax(pixels, y * rgbMatrix.getWidth() + x, rgbMatrix.getWidth(), width, height);
+        }
+        long[] minMax = {MinMaxPyramid.EMPTY};
+        forEachRowBlock(rgbMatrix, x, y, width, height, (kernels, rows, offset, stride, rowWidth, rowCount) ->
+                minMax[0] = MinMaxPyramid.combine(minMax[0], kernels.minMax(rows, offset, stride, rowWidth, rowCount)));
+        return minMax[0];
+    }
+
+    private static boolean isInside(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
+        return x >= 0 && y >= 0 && width > 0 && height > 0
+                && x + width <= rgbMatrix.getWidth() && y + height <= rgbMatrix.getHeight();
+    }
+
+    private interface RowBlock {
+        void accept(ChannelKernels kernels, int[] rows, int offset, int stride, int rowWidth, int rowCount);
+    }
+
+    private static void forEachRowBlock(RGBMatrix rgbMatrix, int x, int y, int width, int height, RowBlock block) {
+        int x1 = Math.max(x, 0), x2 = Math.min(x + width, rgbMatrix.getWidth());
+        int y1 = Math.max(y, 0), y2 = Math.min(y + height, rgbMatrix.getHeight());
+        if (x1 >= x2 || y1 >= y2) return;
+        ChannelKernels kernels = active;
+        int[] pixels = rgbMatrix.heapPixelsOrNull();
+        if (pixels != null) {
+            block.accept(kernels, pixels, y1 * rgbMatrix.getWidth() + x1, rgbMatrix.getWidth(), x2 - x1, y2 - y1);
+            return;
+        }
+        int[] row = new int[x2 - x1];
+        for (int row1 = y1; row1 < y2; row1++) {
+            for (int i = 0; i < row.length; i++) row[i] = rgbMatrix.getRGB(x1 + i, row1);
+            block.accept(kernels, row, 0, row.length, row.length, 1);
+        }
+    }
+}
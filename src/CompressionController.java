@@ -1,21 +1,139 @@
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.function.Function;
 import javax.imageio.ImageIO;
 public class CompressionController {
+    private final boolean parallelBuild;
+    private final int parallelCutoff;
+    private double searchTolerance = ThresholdSearch.DEFAULT_TOLERANCE;
+    private int maxSearchEvaluations = ThresholdSearch.DEFAULT_MAX_EVALUATIONS;
+    // 0 = kandidat blok minimum seperti pencarian awal (pangkat 8 terbesar <= sisi terpendek, dibagi 4 hingga 4)
+    private int searchBlockSize = 0;
+    private boolean reuseFullTree = true;
+    private int blockStatisticsCacheCapacity = BlockStatisticsCache.DEFAULT_CAPACITY;
+    private BlockStatisticsCache lastStatisticsCache;
+    private boolean verbose = true;
+    private Function<String, SizeEstimator> sizeEstimatorFactory = PowerLawSizeEstimator::forFormat;
+    private static final int MAX_ESTIMATE_EVALUATIONS = 24;
+    private static final int MIN_SEARCH_BLOCK_SIZE = 4;
+
+    public CompressionController() {
+        this(false, QuadTree.DEFAULT_PARALLEL_CUTOFF);
+    }
+
+    public CompressionController(boolean parallelBuild, int parallelCutoff) {
+        this.parallelBuild = parallelBuild;
+        this.parallelCutoff = parallelCutoff;
+    }
+
+    public void setSearchTolerance(double searchTolerance) {
+        this.searchTolerance = searchTolerance;
+    }
+
+    // Anggaran encode penuh untuk seluruh pencarian target satu gambar, termasuk probe threshold 0 tiap blok
+    public void setMaxSearchEvaluations(int maxSearchEvaluations) {
+        if (maxSearchEvaluations < 1) {
+            throw new IllegalArgumentException("Jumlah evaluasi maksimum minimal 1.");
+        }
+        this.maxSearchEvaluations = maxSearchEvaluations;
+    }
+
+    // Blok minimum tetap untuk pencarian target; 0 = cari juga di antara kandidat blok minimum
+    public void setSearchBlockSize(int searchBlockSize) {
+        if (searchBlockSize < 0) {
+            throw new IllegalArgumentException("Ukuran blok pencarian tidak boleh negatif.");
+        }
+        this.searchBlockSize = searchBlockSize;
+    }
+
+    // Urutan dari blok terbesar (kompresi tertinggi), seperti pencarian linear awal; blok terakhir paling kecil
+    public int[] getSearchBlockSizes(RGBMatrix rgbMatrix) {
+        if (searchBlockSize > 0) return new int[] {searchBlockSize};
+        int minDimension = Math.min(rgbMatrix.getWidth(), rgbMatrix.getHeight());
+        int maxBlockSize = 1;
+        while (maxBlockSize * 8 <= minDimension) {
+            maxBlockSize *= 8;
+        }
+        // Kandidat terakhir selalu MIN_SEARCH_BLOCK_SIZE agar target rendah tetap bisa dicapai
+        int count = 1;
+        for (int blockSize = maxBlockSize; blockSize > MIN_SEARCH_BLOCK_SIZE; blockSize /= 4) count++;
+        int[] blockSizes = new int[count];
+        for (int i = 0, blockSize = maxBlockSize; i < count - 1; i++, blockSize /= 4) blockSizes[i] = blockSize;
+        blockSizes[count - 1] = MIN_SEARCH_BLOCK_SIZE;
+        return blockSizes;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
+    // Bila aktif, pencarian target membangun satu pohon penuh lalu memotongnya per threshold, tetapi hanya untuk
+    // metrik yang error bloknya tidak O(1) (lihat ErrorMetric.isConstantTime). Terukur pada 1024x1024: Entropy 2.2x,
+    // MAD 1.3x lebih cepat; Variance 0.87x dan SSIM 0.58x lebih lambat karena error dari integral image sudah murah
+    // sedangkan pohon penuh hingga blok 4 berisi ~luas/3 node (32 byte/node di arena, ~11 byte per piksel).
+    public void setReuseFullTree(boolean reuseFullTree) {
+        this.reuseFullTree = reuseFullTree;
+    }
+
+    private boolean usesFullTree(RGBMatrix rgbMatrix, ErrorMetric errorMetric) {
+        return reuseFullTree && !errorMetric.isConstantTime(rgbMatrix);
+    }
+
+    // Kapasitas cache statistik blok untuk pencarian tanpa pohon penuh; 0 = tanpa cache
+    public void setBlockStatisticsCacheCapacity(int blockStatisticsCacheCapacity) {
+        if (blockStatisticsCacheCapacity < 0) {
+            throw new IllegalArgumentException("Kapasitas cache statistik blok tidak boleh negatif.");
+        }
+        this.blockStatisticsCacheCapacity = blockStatisticsCacheCapacity;
+    }
+
+    // Cache yang dipakai pencarian terakhir (hit/miss), null bila tidak ada
+    public BlockStatisticsCache getLastStatisticsCache() {
+        return lastStatisticsCache;
+    }
+
+    // Estimator dipakai untuk menyaring kandidat threshold pada pohon penuh; null = selalu encode penuh
+    public void setSizeEstimatorFactory(Function<String, SizeEstimator> sizeEstimatorFactory) {
+        this.sizeEstimatorFactory = sizeEstimatorFactory;
+    }
 
     public static class OptimalParameters {
         public double blockSize;
         public double threshold;
+        public double compressionRate;
+        public int evaluations;
+        public int estimatedEvaluations;
+        // Ukuran gambar asli hasil encode di awal pencarian (penyebut compressionRate); 0 bila tidak diketahui
+        public long originalSizeInBytes;
 
         public OptimalParameters(double blockSize, double threshold) {
+            this(blockSize, threshold, 0.0, 0, 0);
+        }
+
+        public OptimalParameters(double blockSize, double threshold, double compressionRate, int evaluations,
+                                 int estimatedEvaluations) {
+            this(blockSize, threshold, compressionRate, evaluations, estimatedEvaluations, 0);
+        }
+
+        public OptimalParameters(double blockSize, double threshold, double compressionRate, int evaluations,
+                                 int estimatedEvaluations, long originalSizeInBytes) {
             this.blockSize = blockSize;
             this.threshold = threshold;
+            this.compressionRate = compressionRate;
+            this.evaluations = evaluations;
+            this.estimatedEvaluations = estimatedEvaluations;
+            this.originalSizeInBytes = originalSizeInBytes;
         }
 
         @Override
         public String toString() {
-            return "OptimalParameters { blockSize = " + blockSize + ", threshold = " + threshold + " }";
+            return "OptimalParameters { blockSize = " + blockSize + ", threshold = " + threshold
+                    + ", compressionRate = " + compressionRate + ", evaluations = " + evaluations
+                    + ", estimatedEvaluations = " + estimatedEvaluations + " }";
         }
     }
 
@@ -36,25 +154,57 @@ public class CompressionController {
         }
     }
 
-    public static BufferedImage compressImage(RGBMatrix rgbMatrix, ErrorMetric errorMetric,
+    public static double getMaxThreshold(ErrorMetric errorMetric) {
+        String metricName = errorMetric.getName().toLowerCase();
+        if (metricName.contains("variance")) {
+            return 16256.25;
+        } else if (metricName.contains("max pixel difference")) {
+            return 255.0;
+        } else if (metricName.contains("mad")) {
+            return 127.5;
+        } else if (metricName.contains("entropy")) {
+            return 8.0;
+        } else if (metricName.contains("ssim")) {
+            return 1.0;
+        } else {
+            return 255.0;
+        }
+    }
+
+    public QuadTree createQuadTree(RGBMatrix rgbMatrix, ErrorMetric errorMetric, double threshold, int blockSize) {
+        QuadTree qt = new QuadTree(rgbMatrix, errorMetric, threshold, blockSize);
+        qt.setParallel(parallelBuild, parallelCutoff);
+        return qt;
+    }
+
+    public QuadTree buildFullTree(RGBMatrix rgbMatrix, ErrorMetric errorMetric, int blockSize) {
+        QuadTree qt = createQuadTree(rgbMatrix, errorMetric, 0.0, blockSize);
+        qt.buildFullTree();
+        return qt;
+    }
+
+    public BufferedImage compressImage(RGBMatrix rgbMatrix, ErrorMetric errorMetric,
                                                 double threshold, int blockSize) {
-        QuadTree qt = new QuadTree(rgbMatrix.copy(), errorMetric, threshold, blockSize);
+        QuadTree qt = createQuadTree(rgbMatrix, errorMetric, threshold, blockSize);
         qt.buildTree();
-        return OutputHandler.convertToBufferedImage(qt.getRGBMatrix());
+        return qt.render();
     }
 
     public static long getImageSizeInBytes(BufferedImage image, String formatName) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(image, formatName, baos);
-            baos.flush();
-            return baos.toByteArray().length;
+        PipelineMetrics metrics = PipelineMetrics.get();
+        long start = metrics.start();
+        try (CountingOutputStream counter = new CountingOutputStream()) {
+            ImageIO.write(image, formatName, counter);
+            return counter.getCount();
         } catch (IOException e) {
             e.printStackTrace();
             return 0;
+        } finally {
+            metrics.stop("size_encode", start);
         }
     }
 
-    public static double testCompression(RGBMatrix rgbMatrix, ErrorMetric errorMetric,
+    public double testCompression(RGBMatrix rgbMatrix, ErrorMetric errorMetric,
                                          double blockSize, double threshold, long inputFileSize,
                                          String imageFormat) {
         BufferedImage compressedImage = compressImage(rgbMatrix, errorMetric, threshold, (int) blockSize);
@@ -63,120 +213,198 @@ public class CompressionController {
         return compressionRate;
     }
 
-    public static OptimalParameters findOptimalParameters(RGBMatrix rgbMatrix, ErrorMetric errorMetric,
-                                                            double targetCompressionRate, String imageFormat,
-                                                            boolean useSSIM) {
-        BufferedImage originalImage = OutputHandler.convertToBufferedImage(rgbMatrix);
-        long inputFileSize = getImageSizeInBytes(originalImage, imageFormat);
-
-        double targetCompression = targetCompressionRate * 100.0;
-
-        int width = rgbMatrix.getWidth();
-        int height = rgbMatrix.getHeight();
-        int minDimension = Math.min(width, height);
-        System.out.println("Target compression: " + targetCompression + "%");
+    public double testCompression(QuadTree fullTree, double threshold, long inputFileSize, String imageFormat) {
+        QuadTree qt = fullTree.cut(threshold);
+        BufferedImage compressedImage = qt.render();
+        long compressedSize = getImageSizeInBytes(compressedImage, imageFormat);
+        return (1 - ((double) compressedSize / inputFileSize)) * 100.0;
+    }
 
-        double maxBlockSize = 1.0;
-        while (maxBlockSize * 8 <= minDimension) {
-            maxBlockSize *= 8;
+    public OptimalParameters findOptimalParameters(RGBMatrix rgbMatrix, ErrorMetric errorMetric,
+                                                            double targetCompressionRate, String imageFormat) {
+        QuadTree fullTree = usesFullTree(rgbMatrix, errorMetric) ? buildSearchTree(rgbMatrix, errorMetric) : null;
+        BlockStatisticsCache cache = attachStatisticsCache(rgbMatrix, fullTree == null);
+        try {
+            return findOptimalParameters(rgbMatrix, fullTree, errorMetric, targetCompressionRate, imageFormat);
+        } finally {
+            detachStatisticsCache(rgbMatrix, cache);
         }
+    }
 
-        double bestBlockSize = maxBlockSize;
-        double bestThreshold = 0.0;
-        double closestCompressionRate = 0.0;
-        double minDifference = 5.0;
+    // Satu pohon penuh hingga blok kandidat terkecil; kandidat lain diambil lewat cut(threshold, blockSize)
+    private QuadTree buildSearchTree(RGBMatrix rgbMatrix, ErrorMetric errorMetric) {
+        int[] blockSizes = getSearchBlockSizes(rgbMatrix);
+        return buildFullTree(rgbMatrix, errorMetric, blockSizes[blockSizes.length - 1]);
+    }
 
-        double detailedStep = useSSIM ? 0.1 : 1.0;
-        double detailedTolerance = 1.0;
+    // Tanpa pohon penuh setiap kandidat membangun pohon baru dari matriks yang sama, jadi error dan
+    // rata-rata blok yang sudah dihitung kandidat sebelumnya diambil dari cache. Cache milik pemanggil dipakai apa adanya.
+    private BlockStatisticsCache attachStatisticsCache(RGBMatrix rgbMatrix, boolean repeatedBuilds) {
+        lastStatisticsCache = repeatedBuilds ? rgbMatrix.getBlockStatisticsCache() : null;
+        if (!repeatedBuilds) return null;
+        if (lastStatisticsCache != null || blockStatisticsCacheCapacity == 0) return null;
+        lastStatisticsCache = new BlockStatisticsCache(blockStatisticsCacheCapacity, BlockStatisticsCache.DEFAULT_MIN_AREA);
+        rgbMatrix.setBlockStatisticsCache(lastStatisticsCache);
+        return lastStatisticsCache;
+    }
 
-        boolean foundOptimal = true;
-        double blockSize = maxBlockSize; 
-        
-        while (blockSize >= 4.0 && foundOptimal) {
-            System.out.println("Block size: " + blockSize);
+    private void detachStatisticsCache(RGBMatrix rgbMatrix, BlockStatisticsCache attached) {
+        if (lastStatisticsCache != null) log("Cache statistik blok: " + lastStatisticsCache);
+        if (attached != null) rgbMatrix.setBlockStatisticsCache(null);
+    }
 
-            double startThreshold = useSSIM ? 0.1 : 5.0;
-            double endThreshold = useSSIM ? 0.9 : 50.0;
+    private OptimalParameters findOptimalParameters(RGBMatrix rgbMatrix, QuadTree fullTree, ErrorMetric errorMetric,
+                                                    double targetCompressionRate, String imageFormat) {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        long start = metrics.start();
+        OptimalParameters params = searchOptimalParameters(rgbMatrix, fullTree, errorMetric, targetCompressionRate, imageFormat);
+        metrics.stop("threshold_search", start);
+        metrics.increment("search_iterations", params.evaluations);
+        metrics.increment("search_estimates", params.estimatedEvaluations);
+        return params;
+    }
 
-            double compressionRateStart = testCompression(rgbMatrix, errorMetric, blockSize, startThreshold, inputFileSize, imageFormat);
-            System.out.println("  Threshold: " + startThreshold + ", Compression: " + compressionRateStart + "%");
+    // Blok minimum dicoba dari yang terbesar. Blok dilewati bila pohon paling detail (threshold 0) pun masih
+    // melebihi target; selain itu threshold dicari dan pencarian berhenti pada blok pertama yang mencapai toleransi.
+    // maxSearchEvaluations berlaku untuk seluruh gambar: sisa anggaran diteruskan ke pencarian threshold tiap blok
+    private OptimalParameters searchOptimalParameters(RGBMatrix rgbMatrix, QuadTree fullTree, ErrorMetric errorMetric,
+                                                      double targetCompressionRate, String imageFormat) {
+        BufferedImage originalImage = OutputHandler.convertToBufferedImage(rgbMatrix);
+        long inputFileSize = getImageSizeInBytes(originalImage, imageFormat);
 
-            double diffStart = Math.abs(compressionRateStart - targetCompression);
-            System.out.println("  Diff (start): " + diffStart + "%");
+        double targetCompression = targetCompressionRate * 100.0;
+        log("Target compression: " + targetCompression + "%");
 
-            if (diffStart > 15.0) {
-                System.out.println("  Skip. Hasil jauh (>15%) dari target.");
-                blockSize /= 4;
-                continue;
-            }
+        SizeEstimator estimator = fullTree != null && sizeEstimatorFactory != null
+                ? sizeEstimatorFactory.apply(imageFormat) : null;
+        int[] blockSizes = getSearchBlockSizes(rgbMatrix);
+        OptimalParameters best = null;
+        int evaluations = 0, estimatedEvaluations = 0;
 
-            if (diffStart < minDifference) {
-                minDifference = diffStart;
-                closestCompressionRate = compressionRateStart;
-                bestBlockSize = blockSize;
-                bestThreshold = startThreshold;
+        for (int i = 0; i < blockSizes.length && evaluations < maxSearchEvaluations; i++) {
+            int blockSize = blockSizes[i];
+            log("Block size: " + blockSize);
+            if (i < blockSizes.length - 1) {
+                double finestRate = evaluate(rgbMatrix, fullTree, estimator, errorMetric, blockSize, 0.0,
+                        inputFileSize, imageFormat);
+                evaluations++;
+                log("  Threshold: 0.0, Compression: " + finestRate + "%");
+                best = closer(best, new OptimalParameters(blockSize, 0.0, finestRate, 0, 0), targetCompression);
+                if (Math.abs(finestRate - targetCompression) <= searchTolerance) break;
+                if (finestRate > targetCompression) {
+                    log("  Skip. Blok minimum terlalu besar untuk target.");
+                    continue;
+                }
+                if (evaluations >= maxSearchEvaluations) break;
             }
+            int remaining = maxSearchEvaluations - evaluations;
+            OptimalParameters params = estimator != null
+                    ? searchThresholdEstimated(fullTree, estimator, errorMetric, blockSize, targetCompression,
+                            inputFileSize, imageFormat, remaining)
+                    : searchThreshold(rgbMatrix, fullTree, errorMetric, blockSize, targetCompression,
+                            inputFileSize, imageFormat, remaining);
+            evaluations += params.evaluations;
+            estimatedEvaluations += params.estimatedEvaluations;
+            best = closer(best, params, targetCompression);
+            if (Math.abs(params.compressionRate - targetCompression) <= searchTolerance) break;
+            // Threshold maksimum pun di bawah target: blok yang lebih kecil hanya menurunkan kompresi
+            if (params.threshold >= getMaxThreshold(errorMetric) && params.compressionRate < targetCompression) break;
+            // Anggaran habis sebelum konvergen: blok yang lebih kecil tidak akan dicoba lagi
+            if (params.evaluations >= remaining) {
+                log("  Anggaran " + maxSearchEvaluations + " evaluasi habis.");
+                break;
+            }
+        }
 
-            double compressionRateEnd = testCompression(rgbMatrix, errorMetric, blockSize, endThreshold, inputFileSize, imageFormat);
-            System.out.println("  End test - Threshold: " + endThreshold + ", Compression: " + compressionRateEnd + "%");
+        double bestDiff = Math.abs(best.compressionRate - targetCompression);
+        if (bestDiff > searchTolerance) {
+            log("  Toleransi " + searchTolerance + "% tidak tercapai, menggunakan hasil terdekat.");
+        }
+        log("Aproksimasi terbaik: " + best.compressionRate + "% (dengan error: " + bestDiff + "%, "
+                + evaluations + " evaluasi, " + estimatedEvaluations + " estimasi)");
+        log("  bestBlockSize: " + best.blockSize + ", bestThreshold: " + best.threshold);
+        return new OptimalParameters(best.blockSize, best.threshold, best.compressionRate, evaluations,
+                estimatedEvaluations, inputFileSize);
+    }
 
+    private static OptimalParameters closer(OptimalParameters best, OptimalParameters candidate, double target) {
+        if (best == null) return candidate;
+        return Math.abs(candidate.compressionRate - target) < Math.abs(best.compressionRate - target) ? candidate : best;
+    }
 
-            double diffEnd = Math.abs(compressionRateEnd - targetCompression);
-            if (diffEnd < minDifference) {
-                minDifference = diffEnd;
-                closestCompressionRate = compressionRateEnd;
-                bestBlockSize = blockSize;
-                bestThreshold = endThreshold;
-            }
+    // Satu encode penuh; bila ada estimator, hasilnya sekaligus dipakai untuk kalibrasi
+    private double evaluate(RGBMatrix rgbMatrix, QuadTree fullTree, SizeEstimator estimator, ErrorMetric errorMetric,
+                            int blockSize, double threshold, long inputFileSize, String imageFormat) {
+        QuadTree qt;
+        if (fullTree != null) {
+            qt = fullTree.cut(threshold, blockSize);
+        } else {
+            qt = createQuadTree(rgbMatrix, errorMetric, threshold, blockSize);
+            qt.buildTree();
+        }
+        long compressedSize = getImageSizeInBytes(qt.render(), imageFormat);
+        if (estimator != null) estimator.calibrate(TreeStatistics.of(qt), compressedSize);
+        return (1 - ((double) compressedSize / inputFileSize)) * 100.0;
+    }
 
-            if (diffStart <= 5.0 || diffEnd <= 5.0) {
-                System.out.println("  Lakukan pencarian detail threshold (step: " + detailedStep + ", toleransi: " + detailedTolerance + "%)");
-                double currentThreshold = (Math.abs(compressionRateEnd - targetCompression) < Math.abs(compressionRateStart - targetCompression))
-                                          ? endThreshold - detailedStep 
-                                          : startThreshold + detailedStep;
-                while (currentThreshold >= startThreshold && currentThreshold <= endThreshold) {
-                    double currentCompressionRate = testCompression(rgbMatrix, errorMetric, blockSize, currentThreshold, inputFileSize, imageFormat);
-                    double diffCurrent = Math.abs(currentCompressionRate - targetCompression);
-                    System.out.println("    Testing - Threshold: " + currentThreshold + ", Compression: " + currentCompressionRate + "%, Diff: " + diffCurrent + "%");
-    
-                    if (diffCurrent < minDifference) {
-                        minDifference = diffCurrent;
-                        closestCompressionRate = currentCompressionRate;
-                        bestBlockSize = blockSize;
-                        bestThreshold = currentThreshold;
-                        if (diffCurrent <= detailedTolerance) {
-                            System.out.println("    Presisi tercapai (diff <= " + detailedTolerance + "%).");
-                            foundOptimal = true;
-                            break;
-                        }
-                    }
-                    if ((useSSIM && currentCompressionRate < targetCompression) || 
-                        (!useSSIM && currentCompressionRate > targetCompression)) {
-                        currentThreshold += detailedStep;
-                    } else {
-                        currentThreshold -= detailedStep;
-                    }
-                }
-                if (foundOptimal) {
-                    break;
-                }
+    private OptimalParameters searchThreshold(RGBMatrix rgbMatrix, QuadTree fullTree, ErrorMetric errorMetric,
+                                              int blockSize, double targetCompression, long inputFileSize,
+                                              String imageFormat, int maxEvaluations) {
+        ThresholdSearch search = new ThresholdSearch(searchTolerance, maxEvaluations);
+        ThresholdSearch.Result result = search.search(threshold -> {
+            double compressionRate = evaluate(rgbMatrix, fullTree, null, errorMetric, blockSize, threshold,
+                    inputFileSize, imageFormat);
+            log("  Threshold: " + threshold + ", Compression: " + compressionRate + "%");
+            return compressionRate;
+        }, 0.0, getMaxThreshold(errorMetric), getDefaultThreshold(errorMetric), targetCompression);
+        return new OptimalParameters(blockSize, result.threshold, result.rate, result.evaluations, 0);
+    }
+
+    // Setiap encode penuh mengkalibrasi estimator, lalu kandidat berikutnya dicari hanya dengan estimasi ukuran
+    private OptimalParameters searchThresholdEstimated(QuadTree fullTree, SizeEstimator estimator,
+                                                       ErrorMetric errorMetric, int blockSize,
+                                                       double targetCompression, long inputFileSize,
+                                                       String imageFormat, int maxEvaluations) {
+        double maxThreshold = getMaxThreshold(errorMetric);
+        double threshold = getDefaultThreshold(errorMetric);
+        double bestThreshold = threshold, bestRate = 0.0, bestDiff = Double.POSITIVE_INFINITY;
+        int evaluations = 0, estimatedEvaluations = 0;
+
+        while (evaluations < maxEvaluations) {
+            if (estimator.isCalibrated()) {
+                ThresholdSearch estimateSearch = new ThresholdSearch(searchTolerance / 4.0, MAX_ESTIMATE_EVALUATIONS);
+                ThresholdSearch.Result predicted = estimateSearch.search(candidate -> {
+                    long estimatedSize = estimator.estimateSize(TreeStatistics.of(fullTree.cut(candidate, blockSize)));
+                    return (1 - ((double) estimatedSize / inputFileSize)) * 100.0;
+                }, 0.0, maxThreshold, threshold, targetCompression);
+                estimatedEvaluations += predicted.evaluations;
+                if (predicted.threshold == threshold && evaluations > 0) break;
+                threshold = predicted.threshold;
             }
 
-            blockSize /= 4;
-        }
+            double compressionRate = evaluate(null, fullTree, estimator, errorMetric, blockSize, threshold,
+                    inputFileSize, imageFormat);
+            evaluations++;
 
-        System.out.println("Aproksimasi terbaik: " + closestCompressionRate + "% (dengan error: " + minDifference + "%)");
-        System.out.println("  bestThreshold: " + bestThreshold + "%");
-        return new OptimalParameters(bestBlockSize, bestThreshold);
+            double diff = Math.abs(compressionRate - targetCompression);
+            log("  Threshold: " + threshold + ", Compression: " + compressionRate + "%");
+            if (diff < bestDiff) {
+                bestDiff = diff;
+                bestThreshold = threshold;
+                bestRate = compressionRate;
+            }
+            if (diff <= searchTolerance) break;
+        }
+        return new OptimalParameters(blockSize, bestThreshold, bestRate, evaluations, estimatedEvaluations);
     }
 
     public CompressedImage compressWithTarget(RGBMatrix rgbMatrix, ErrorMetric errorMetric,
                                                 double targetCompression, String imageFormat) {
         if (targetCompression == 0) {
             double defaultThreshold = getDefaultThreshold(errorMetric);
-            QuadTree qt = new QuadTree(rgbMatrix.copy(), errorMetric, defaultThreshold, 8);
+            QuadTree qt = createQuadTree(rgbMatrix, errorMetric, defaultThreshold, 8);
             qt.buildTree();
-            BufferedImage compressedImage = OutputHandler.convertToBufferedImage(qt.getRGBMatrix());
+            BufferedImage compressedImage = qt.render();
             BufferedImage originalImage = OutputHandler.convertToBufferedImage(rgbMatrix);
             long originalSize = getImageSizeInBytes(originalImage, imageFormat);
             long compressedSize = getImageSizeInBytes(compressedImage, imageFormat);
@@ -184,14 +412,25 @@ public class CompressionController {
             return new CompressedImage(compressedImage, compRate, compressedSize, originalSize, qt);
         }
 
-        boolean useSSIM = errorMetric.getName().toLowerCase().contains("ssim");
-        OptimalParameters params = findOptimalParameters(rgbMatrix, errorMetric, targetCompression, imageFormat, useSSIM);
-        System.out.println("Parameter optimal ditemukan: " + params.blockSize + ", " + params.threshold);
-        QuadTree qt = new QuadTree(rgbMatrix.copy(), errorMetric, params.threshold, (int) params.blockSize);
-        qt.buildTree();
-        BufferedImage finalCompressedImage = OutputHandler.convertToBufferedImage(qt.getRGBMatrix());
-        BufferedImage originalImage = OutputHandler.convertToBufferedImage(rgbMatrix);
-        long originalSize = getImageSizeInBytes(originalImage, imageFormat);
+        QuadTree fullTree = usesFullTree(rgbMatrix, errorMetric) ? buildSearchTree(rgbMatrix, errorMetric) : null;
+        QuadTree qt;
+        long originalSize;
+        BlockStatisticsCache cache = attachStatisticsCache(rgbMatrix, fullTree == null);
+        try {
+            OptimalParameters params = findOptimalParameters(rgbMatrix, fullTree, errorMetric, targetCompression, imageFormat);
+            log("Parameter optimal ditemukan: " + params.blockSize + ", " + params.threshold);
+            originalSize = params.originalSizeInBytes;
+            if (fullTree != null) {
+                qt = fullTree.cut(params.threshold, (int) params.blockSize);
+            } else {
+                qt = createQuadTree(rgbMatrix, errorMetric, params.threshold, (int) params.blockSize);
+                qt.buildTree();
+            }
+        } finally {
+            detachStatisticsCache(rgbMatrix, cache);
+        }
+        BufferedImage finalCompressedImage = qt.render();
+        // Gambar asli sudah di-encode sekali saat pencarian; tidak perlu diulang untuk statistik
         long finalSize = getImageSizeInBytes(finalCompressedImage, imageFormat);
         double finalCompression = (1 - ((double) finalSize / originalSize)) * 100.0;
         return new CompressedImage(finalCompressedImage, finalCompression, finalSize, originalSize, qt);
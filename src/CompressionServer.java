@@ -0,0 +1,440 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Mode server: satu JVM yang terus hidup melayani permintaan kompresi lewat HTTP (com.sun.net.httpserver),
+ * sehingga startup JVM, warm-up JIT, dan alur InputParser tidak dibayar per gambar.
+ *
+ * POST /compress?metric=..&(threshold=..[&min-block=..] | target=0-1)[&format=png|jpg][&gif=1][&stats=1]
+ *   body: file gambar PNG/JPG. Respons: gambar hasil kompresi (atau animasi GIF bila gif=1),
+ *   statistik pohon di header X-Quadtree-*; stats=1 menambah jumlah leaf dan run warna.
+ * GET /health
+ * GET /metrics[?format=json]  (hanya dengan --metrics) timer tahap pipeline dalam format Prometheus atau JSON
+ *
+ * Setiap permintaan berjalan di virtual thread bila JVM mendukung (Java 21+), selain itu di pool thread biasa.
+ * Jumlah kompresi bersamaan dibatasi semaphore dan ukuran upload/piksel dibatasi, sehingga lonjakan
+ * permintaan menunggu (atau ditolak 503) alih-alih menghabiskan heap: permintaan yang menunggu permit
+ * hanya memegang body upload-nya, decode dan kompresi baru berjalan setelah permit didapat.
+ */
+public class CompressionServer {
+    private int port = 8080;
+    private int maxConcurrent = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private long maxUploadBytes = 32L << 20;
+    private long maxPixels = 40_000_000L;
+    private long queueTimeoutMillis = 30_000;
+    private boolean metricsEnabled;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Semaphore permits;
+    private String executorName;
+    private final AtomicInteger active = new AtomicInteger();
+
+    public static void printUsage() {
+        System.out.println("Penggunaan: java Main --serve [--port <n>] [--max-concurrent <n>]");
+        System.out.println("                      [--max-upload-mb <n>] [--max-megapixels <n>] [--queue-timeout-ms <n>]");
+        System.out.println("                      [--metrics]  (aktifkan GET /metrics)");
+        System.out.println("  POST /compress?metric=<1-5|nama>&threshold=<t>&min-block=<n> | &target=<0-1>");
+        System.out.println("                [&format=png|jpg] [&gif=1] [&stats=1]   (body: file gambar)");
+    }
+
+    public static CompressionServer fromArgs(String[] args) {
+        CompressionServer server = new CompressionServer();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--serve" -> { }
+                case "--port" -> server.port = parseInt(requireValue(args, ++i, arg), arg);
+                case "--max-concurrent" -> server.maxConcurrent = parseInt(requireValue(args, ++i, arg), arg);
+                case "--max-upload-mb" -> server.maxUploadBytes = (long) (parseDouble(requireValue(args, ++i, arg), arg) * (1 << 20));
+                case "--max-megapixels" -> server.maxPixels = (long) (parseDouble(requireValue(args, ++i, arg), arg) * 1_000_000);
+                case "--queue-timeout-ms" -> server.queueTimeoutMillis = parseLong(requireValue(args, ++i, arg), arg);
+                case "--metrics" -> server.metricsEnabled = true;
+                default -> throw new IllegalArgumentException("Argumen tidak dikenali: " + arg);
+            }
+        }
+        if (server.port < 0 || server.port > 65535) throw new IllegalArgumentException("Port tidak valid.");
+        if (server.maxConcurrent <= 0) throw new IllegalArgumentException("--max-concurrent harus positif.");
+        if (server.maxUploadBytes <= 0) throw new IllegalArgumentException("--max-upload-mb harus positif.");
+        if (server.maxPixels <= 0) throw new IllegalArgumentException("--max-megapixels harus positif.");
+        if (server.queueTimeoutMillis < 0) throw new IllegalArgumentException("--queue-timeout-ms tidak boleh negatif.");
+        return server;
+    }
+
+    private static String requireValue(String[] args, int index, String flag) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Nilai untuk " + flag + " tidak diberikan.");
+        }
+        return args[index];
+    }
+
+    private static double parseDouble(String value, String flag) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nilai " + flag + " harus berupa angka: " + value);
+        }
+    }
+
+    private static int parseInt(String value, String flag) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nilai " + flag + " harus berupa bilangan bulat: " + value);
+        }
+    }
+
+    private static long parseLong(String value, String flag) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nilai " + flag + " harus berupa bilangan bulat: " + value);
+        }
+    }
+
+    public void start() throws IOException {
+        permits = new Semaphore(maxConcurrent, true);
+        executor = createRequestExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/compress", this::handleCompress);
+        server.createContext("/health", this::handleHealth);
+        if (metricsEnabled) PipelineMetrics.enable();
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "server-shutdown"));
+        System.out.println("Server kompresi berjalan di http://localhost:" + getPort() + " (" + executorName
+                + ", maks " + maxConcurrent + " kompresi bersamaan)");
+    }
+
+    public void stop() {
+        if (server != null) server.stop(1);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() baru ada di Java 21, jadi dipanggil lewat refleksi agar
+    // kode tetap dikompilasi di JDK lama; tanpa virtual thread dipakai pool tetap yang cukup untuk antrian semaphore
+    private ExecutorService createRequestExecutor() {
+        try {
+            ExecutorService virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            executorName = "virtual thread per permintaan";
+            return virtual;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            int threads = Math.max(4, 2 * maxConcurrent);
+            AtomicInteger counter = new AtomicInteger();
+            executorName = threads + " platform thread";
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "http-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        String body = "{\"status\":\"ok\",\"active\":" + active.get() + ",\"available\":" + permits.availablePermits()
+                + ",\"maxConcurrent\":" + maxConcurrent + ",\"executor\":\"" + executorName + "\"}";
+        send(exchange, 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            PipelineMetrics metrics = PipelineMetrics.get();
+            if (!metrics.isEnabled()) {
+                sendError(exchange, 404, "Metrics nonaktif; jalankan server dengan --metrics.");
+            } else if ("json".equals(parseQuery(exchange.getRequestURI().getRawQuery()).get("format"))) {
+                send(exchange, 200, "application/json", metrics.toJson().getBytes(StandardCharsets.UTF_8));
+            } else {
+                send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8",
+                        metrics.toPrometheus().getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleCompress(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                discardBody(exchange.getRequestBody());
+                sendError(exchange, 405, "Gunakan POST dengan file gambar sebagai body.");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            Request request = new Request(query);
+
+            // Body (maks maxUploadBytes) dibaca sebelum permit diambil, agar klien yang mengunggah lambat tidak
+            // menahan slot kompresi; gambar hasil decode hanya ada di heap untuk permintaan yang memegang permit
+            byte[] upload = readBody(exchange);
+            if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Server sedang penuh, coba lagi.");
+                return;
+            }
+            active.incrementAndGet();
+            try {
+                compress(exchange, request, upload);
+            } finally {
+                active.decrementAndGet();
+                permits.release();
+            }
+        } catch (RequestException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            discardBody(exchange.getRequestBody());
+            sendError(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server sedang berhenti.");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR: /compress: " + e);
+            sendError(exchange, 500, "Gagal memproses gambar: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void compress(HttpExchange exchange, Request request, byte[] upload) throws IOException {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        long t0 = System.nanoTime();
+        String inputFormat = probe(upload);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(upload));
+        if (image == null) throw new RequestException(400, "Gambar tidak bisa dibaca.");
+        metrics.stop("decode", t0);
+        long convertStart = metrics.start();
+        RGBMatrix rgbMatrix = RGBMatrix.fromBufferedImage(image);
+        metrics.stop("rgb_convert", convertStart);
+        image = null;
+        String format = request.format != null ? request.format : inputFormat;
+
+        long t1 = System.nanoTime();
+        QuadTree quadTree;
+        BufferedImage compressed;
+        if (request.target > 0) {
+            CompressionController controller = new CompressionController();
+            controller.setVerbose(false);
+            CompressedImage result = controller.compressWithTarget(rgbMatrix, request.errorMetric, request.target, format);
+            quadTree = result.getQuadTree();
+            compressed = result.getImage();
+        } else {
+            quadTree = new QuadTree(rgbMatrix, request.errorMetric, request.threshold, request.minBlockSize);
+            quadTree.buildTree();
+            // GIF dibuat langsung dari pohon, jadi gambar hasil tidak perlu dirender
+            compressed = request.gif ? null : quadTree.render();
+        }
+        long t2 = System.nanoTime();
+
+        byte[] output;
+        if (request.gif) {
+            output = encodeGif(quadTree);
+            format = "gif";
+        } else {
+            output = encodeImage(compressed, format);
+            metrics.stop("encode", t2);
+        }
+        compressed = null;
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("X-Image-Width", String.valueOf(quadTree.getWidth()));
+        headers.set("X-Image-Height", String.valueOf(quadTree.getHeight()));
+        headers.set("X-Quadtree-Nodes", String.valueOf(quadTree.getNodeCount()));
+        headers.set("X-Quadtree-Max-Depth", String.valueOf(quadTree.getMaxDepth()));
+        headers.set("X-Compressed-Bytes", String.valueOf(output.length));
+        headers.set("X-Compression-Rate", String.format("%.2f", (1 - (double) output.length / upload.length) * 100.0));
+        if (request.stats) {
+            TreeStatistics statistics = TreeStatistics.of(quadTree);
+            headers.set("X-Quadtree-Leaves", String.valueOf(statistics.getLeafCount()));
+            headers.set("X-Quadtree-Color-Runs", String.valueOf(statistics.getColorRuns()));
+        }
+        headers.set("X-Decode-Ms", String.format("%.1f", (t1 - t0) / 1e6));
+        headers.set("X-Compress-Ms", String.format("%.1f", (t2 - t1) / 1e6));
+        headers.set("X-Encode-Ms", String.format("%.1f", (System.nanoTime() - t2) / 1e6));
+        send(exchange, 200, "image/" + (format.equals("jpg") ? "jpeg" : format), output);
+    }
+
+    // Membaca ukuran dari header gambar saja, sehingga gambar raksasa ditolak sebelum di-decode
+    private String probe(byte[] upload) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(upload))) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new RequestException(415, "Format file tidak didukung.");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new RequestException(413, "Gambar terlalu besar: " + pixels + " piksel (maks " + maxPixels + ").");
+                }
+                String format = reader.getFormatName().toLowerCase();
+                if (format.equals("jpeg")) return "jpg";
+                if (format.equals("png") || format.equals("jpg")) return format;
+                throw new RequestException(415, "Format file tidak didukung: " + format);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static byte[] encodeImage(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No writer for format " + format);
+        }
+        return out.toByteArray();
+    }
+
+    // MemoryEfficientGifWriter menulis ke path, jadi GIF dibuat di file sementara lalu dikirim
+    private static byte[] encodeGif(QuadTree quadTree) throws IOException {
+        File temp = File.createTempFile("quadtree", ".gif");
+        try {
+            MemoryEfficientGifWriter writer = new MemoryEfficientGifWriter(temp.getPath(), BufferedImage.TYPE_INT_RGB, true);
+            try {
+                new QuadTreeGifRenderer(quadTree).write(writer, 500, percent -> { });
+            } finally {
+                writer.close();
+            }
+            return Files.readAllBytes(temp.toPath());
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        long declared = parseContentLength(exchange.getRequestHeaders().getFirst("Content-Length"));
+        if (declared > maxUploadBytes) {
+            discardBody(in);
+            throw new RequestException(413, "Upload melebihi " + (maxUploadBytes >> 20) + " MB.");
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(declared > 0 ? (int) declared : 1 << 16);
+        byte[] buffer = new byte[1 << 16];
+        for (int read; (read = in.read(buffer)) >= 0; ) {
+            if (body.size() + (long) read > maxUploadBytes) {
+                throw new RequestException(413, "Upload melebihi " + (maxUploadBytes >> 20) + " MB.");
+            }
+            body.write(buffer, 0, read);
+        }
+        if (body.size() == 0) throw new RequestException(400, "Body kosong: kirim file gambar.");
+        return body.toByteArray();
+    }
+
+    // -1 bila tidak ada atau tidak valid (mis. chunked); batas upload tetap diperiksa saat membaca
+    private static long parseContentLength(String value) {
+        if (value == null) return -1;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Upload yang ditolak tetap dibaca (tanpa disimpan) agar klien yang masih mengirim body menerima
+    // status penolakan, bukan connection reset; lebih dari batas upload koneksi dibiarkan terputus
+    private void discardBody(InputStream in) {
+        byte[] buffer = new byte[1 << 16];
+        try {
+            for (long total = 0, read; total <= maxUploadBytes && (read = in.read(buffer)) >= 0; ) {
+                total += read;
+            }
+        } catch (IOException e) {
+            // Koneksi sudah putus; respons gagal dikirim di sendError
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int split = pair.indexOf('=');
+            String key = URLDecoder.decode(split < 0 ? pair : pair.substring(0, split), StandardCharsets.UTF_8);
+            String value = split < 0 ? "" : URLDecoder.decode(pair.substring(split + 1), StandardCharsets.UTF_8);
+            query.put(key, value);
+        }
+        return query;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Parameter /compress, divalidasi seperti opsi mode batch
+    private static class Request {
+        final ErrorMetric errorMetric;
+        final double threshold, target;
+        final int minBlockSize;
+        final String format;
+        final boolean gif, stats;
+
+        Request(Map<String, String> query) {
+            String metric = query.get("metric");
+            if (metric == null) throw new IllegalArgumentException("Parameter metric wajib diisi.");
+            errorMetric = ErrorMetricFactory.createErrorMetric(metric);
+            threshold = query.containsKey("threshold") ? parseDouble(query.get("threshold"), "threshold") : -1;
+            target = query.containsKey("target") ? parseDouble(query.get("target"), "target") : 0;
+            minBlockSize = query.containsKey("min-block") ? parseInt(query.get("min-block"), "min-block") : 16;
+            String requested = query.get("format");
+            format = requested == null ? null : requested.toLowerCase().replace("jpeg", "jpg");
+            gif = isEnabled(query.get("gif"));
+            stats = isEnabled(query.get("stats"));
+
+            if (target < 0 || target > 1) throw new IllegalArgumentException("Target kompresi harus di antara 0 dan 1.");
+            if (target == 0 && threshold < 0) throw new IllegalArgumentException("Isi threshold atau target.");
+            if (minBlockSize <= 0) throw new IllegalArgumentException("Ukuran blok minimum harus positif.");
+            if (format != null && !format.equals("png") && !format.equals("jpg")) {
+                throw new IllegalArgumentException("Format output harus png atau jpg.");
+            }
+        }
+
+        private static boolean isEnabled(String value) {
+            return value != null && (value.isEmpty() || value.equals("1") || value.equalsIgnoreCase("true"));
+        }
+    }
+
+    private static class RequestException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
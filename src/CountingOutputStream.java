@@ -0,0 +1,20 @@
+import java.io.OutputStream;
+
+// Menghitung jumlah byte yang ditulis tanpa menyimpannya
+public class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        count += len;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -1,40 +1,77 @@
 /**
  * Hc = -Σ(Pc(i) * log2(Pc(i)))
  * HRGB = (HR + HG + HB) / 3
+ *
+ * Dengan Pc(i) = fi / n:  Hc = log2(n) - Σ(fi * log2(fi)) / n,
+ * sehingga f * log2(f) cukup diambil dari tabel, tanpa memanggil Math.log per bin.
  */
 class EntropyErrorMetric implements ErrorMetric {
+    private static final int BINS = 256;
+    private static final double LN_2 = Math.log(2);
+    private static final int TABLE_SIZE = 1 << 16;
+    private static final double[] N_LOG2_N = new double[TABLE_SIZE];
+    // Histogram R, G, B (3 x 256) per thread, dipakai ulang dan selalu dikembalikan dalam keadaan nol
+    private static final ThreadLocal<int[]> HISTOGRAM = ThreadLocal.withInitial(() -> new int[3 * BINS]);
+
+    static {
+        for (int n = 1; n < TABLE_SIZE; n++) {
+            N_LOG2_N[n] = n * Math.log(n) / LN_2;
+        }
+    }
+
+    private static double nLog2N(int n) {
+        return n < TABLE_SIZE ? N_LOG2_N[n] : n * Math.log(n) / LN_2;
+    }
+
     @Override
     public double calculateError(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
-        int[] freqR = new int[256];
-        int[] freqG = new int[256];
-        int[] freqB = new int[256];
-        int cnt = 0;
-        for (int y1 = y; y1 < y + height; y1++) {
-            for (int x1 = x; x1 < x + width; x1++) {
-                if (x1 >= rgbMatrix.getWidth() || y1 >= rgbMatrix.getHeight()) continue;
-                Pixel col = rgbMatrix.getPixel(x1, y1);
-                freqR[col.getR()]++;
-                freqG[col.getG()]++;
-                freqB[col.getB()]++;
-                cnt++;
+        int endX = Math.min(x + width, rgbMatrix.getWidth());
+        int endY = Math.min(y + height, rgbMatrix.getHeight());
+        if (endX <= x || endY <= y) return 0.0;
+        int cnt = (endX - x) * (endY - y);
+
+        int[] freq = HISTOGRAM.get();
+        for (int y1 = y; y1 < endY; y1++) {
+            for (int x1 = x; x1 < endX; x1++) {
+                int rgb = rgbMatrix.getRGB(x1, y1);
+                freq[(rgb >> 16) & 0xFF]++;
+                freq[BINS + ((rgb >> 8) & 0xFF)]++;
+                freq[2 * BINS + (rgb & 0xFF)]++;
             }
         }
 
-        double entropyR = 0, entropyG = 0, entropyB = 0;
-        for (int i = 0; i < 256; i++) {
-            double piR = (double) freqR[i] / cnt;
-            double piG = (double) freqG[i] / cnt;
-            double piB = (double) freqB[i] / cnt;
-            if (piR > 0) entropyR -= piR * Math.log(piR) / Math.log(2);
-            if (piG > 0) entropyG -= piG * Math.log(piG) / Math.log(2);
-            if (piB > 0) entropyB -= piB * Math.log(piB) / Math.log(2);
+        double sum = 0;
+        if (cnt < BINS) {
+            // Blok kecil: cukup kunjungi bin yang terisi dengan membaca ulang pikselnya
+            for (int y1 = y; y1 < endY; y1++) {
+                for (int x1 = x; x1 < endX; x1++) {
+                    int rgb = rgbMatrix.getRGB(x1, y1);
+                    sum += takeBin(freq, (rgb >> 16) & 0xFF);
+                    sum += takeBin(freq, BINS + ((rgb >> 8) & 0xFF));
+                    sum += takeBin(freq, 2 * BINS + (rgb & 0xFF));
+                }
+            }
+        } else {
+            for (int i = 0; i < freq.length; i++) {
+                if (freq[i] != 0) {
+                    sum += nLog2N(freq[i]);
+                    freq[i] = 0;
+                }
+            }
         }
 
-        return (entropyR + entropyG + entropyB) / 3.0;
-    }    
+        return (3 * nLog2N(cnt) / cnt - sum / cnt) / 3.0;
+    }
+
+    private static double takeBin(int[] freq, int bin) {
+        int f = freq[bin];
+        if (f == 0) return 0.0;
+        freq[bin] = 0;
+        return nLog2N(f);
+    }
 
     @Override
     public String getName() {
         return "Entropy";
     }
-}
\ No newline at end of file
+}
@@ -2,4 +2,17 @@ public interface ErrorMetric {
     double calculateError(RGBMatrix rgbMatrix, int x, int y, int width, int height);
 
     String getName();
-}
\ No newline at end of file
+
+    // true bila calculateError tidak memindai piksel blok (mis. lewat integral image), sehingga estimasi
+    // dari sampel (SampledSplit) tidak lebih murah daripada nilai eksaknya
+    default boolean isConstantTime(RGBMatrix rgbMatrix) {
+        return false;
+    }
+
+    // true bila error dari sampel piksel kira-kira tak bias terhadap error blok (metrik berbasis rata-rata dan
+    // variansi), sehingga SampledSplit boleh memakainya. Entropy dan selisih maksimum dari sampel selalu terlalu
+    // rendah (entropy 144 sampel dibatasi log2(144)), jadi keduanya selalu memakai scan eksak
+    default boolean isSampleEstimable() {
+        return false;
+    }
+}
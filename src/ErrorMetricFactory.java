@@ -10,4 +10,15 @@ public class ErrorMetricFactory {
             default -> throw new IllegalArgumentException("Metode error tidak valid.");
         };
     }
+
+    public static ErrorMetric createErrorMetric(String input) {
+        return switch (input.toLowerCase()) {
+            case "1", "variance" -> new VarianceErrorMetric();
+            case "2", "mad" -> new MADErrorMetric();
+            case "3", "max", "maxdiff" -> new MaxPixelDifferenceErrorMetric();
+            case "4", "entropy" -> new EntropyErrorMetric();
+            case "5", "ssim" -> new SSIMErrorMetric();
+            default -> throw new IllegalArgumentException("Metode error tidak valid: " + input);
+        };
+    }
 }
@@ -9,44 +9,85 @@ public class GifSequenceWriter {
     protected ImageWriter gifWriter;
     protected ImageWriteParam imageWriteParam;
     protected IIOMetadata imageMetaData;
+    // Metadata disiapkan sekali: frame pertama membawa ekstensi loop NETSCAPE, frame berikutnya tidak.
+    // Per frame hanya posisi dan delay yang di-merge.
+    protected IIOMetadata firstFrameMetaData;
+    protected boolean loopContinuously;
+    protected boolean firstFrame = true;
+    private String metaFormatName;
 
     public GifSequenceWriter(ImageOutputStream outputStream, int imageType, boolean loopContinuously) throws IOException {
         gifWriter = getWriter();
         imageWriteParam = gifWriter.getDefaultWriteParam();
+        this.loopContinuously = loopContinuously;
 
         ImageTypeSpecifier imageTypeSpecifier = ImageTypeSpecifier.createFromBufferedImageType(imageType);
-        imageMetaData = gifWriter.getDefaultImageMetadata(imageTypeSpecifier, imageWriteParam);
-
-        String metaFormatName = imageMetaData.getNativeMetadataFormatName();
-        IIOMetadataNode root = (IIOMetadataNode) imageMetaData.getAsTree(metaFormatName);
+        imageMetaData = createFrameMetaData(imageTypeSpecifier, false);
+        firstFrameMetaData = createFrameMetaData(imageTypeSpecifier, true);
 
         gifWriter.setOutput(outputStream);
         gifWriter.prepareWriteSequence(null);
     }
 
-    public void writeToSequence(BufferedImage img, int frameDelayMs) throws IOException {
-        String metaFormatName = imageMetaData.getNativeMetadataFormatName();
-        IIOMetadataNode root = (IIOMetadataNode) imageMetaData.getAsTree(metaFormatName);
+    private IIOMetadata createFrameMetaData(ImageTypeSpecifier imageTypeSpecifier, boolean withLoopExtension) throws IOException {
+        IIOMetadata metaData = gifWriter.getDefaultImageMetadata(imageTypeSpecifier, imageWriteParam);
+        metaFormatName = metaData.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metaData.getAsTree(metaFormatName);
 
+        // Frame parsial digambar di atas frame sebelumnya, yang tetap dipertahankan (doNotDispose)
         IIOMetadataNode graphicsControlExtensionNode = getNode(root, "GraphicControlExtension");
-        graphicsControlExtensionNode.setAttribute("disposalMethod", "none");
+        graphicsControlExtensionNode.setAttribute("disposalMethod", "doNotDispose");
+        graphicsControlExtensionNode.setAttribute("userInputFlag", "FALSE");
+        graphicsControlExtensionNode.setAttribute("transparentColorFlag", "FALSE");
+        graphicsControlExtensionNode.setAttribute("delayTime", "0");
+        graphicsControlExtensionNode.setAttribute("transparentColorIndex", "0");
+
+        if (withLoopExtension) {
+            IIOMetadataNode appExtensionsNode = getNode(root, "ApplicationExtensions");
+            IIOMetadataNode child = new IIOMetadataNode("ApplicationExtension");
+            child.setAttribute("applicationID", "NETSCAPE");
+            child.setAttribute("authenticationCode", "2.0");
+
+            int loop = loopContinuously ? 0 : 1;
+            child.setUserObject(new byte[]{0x1, (byte)(loop & 0xFF), (byte)((loop >> 8) & 0xFF)});
+            appExtensionsNode.appendChild(child);
+        }
+
+        metaData.setFromTree(metaFormatName, root);
+        return metaData;
+    }
+
+    public void writeToSequence(BufferedImage img, int frameDelayMs) throws IOException {
+        writeToSequence(img, 0, 0, frameDelayMs);
+    }
+
+    // Frame parsial: img digambar di (left, top)
+    public void writeToSequence(BufferedImage img, int left, int top, int frameDelayMs) throws IOException {
+        IIOMetadata metaData = firstFrame ? firstFrameMetaData : imageMetaData;
+        firstFrame = false;
+
+        IIOMetadataNode root = new IIOMetadataNode(metaFormatName);
+        IIOMetadataNode imageDescriptorNode = new IIOMetadataNode("ImageDescriptor");
+        imageDescriptorNode.setAttribute("imageLeftPosition", Integer.toString(left));
+        imageDescriptorNode.setAttribute("imageTopPosition", Integer.toString(top));
+        imageDescriptorNode.setAttribute("imageWidth", Integer.toString(img.getWidth()));
+        imageDescriptorNode.setAttribute("imageHeight", Integer.toString(img.getHeight()));
+        imageDescriptorNode.setAttribute("interlaceFlag", "TRUE");
+        root.appendChild(imageDescriptorNode);
+
+        IIOMetadataNode graphicsControlExtensionNode = new IIOMetadataNode("GraphicControlExtension");
+        graphicsControlExtensionNode.setAttribute("disposalMethod", "doNotDispose");
         graphicsControlExtensionNode.setAttribute("userInputFlag", "FALSE");
         graphicsControlExtensionNode.setAttribute("transparentColorFlag", "FALSE");
         graphicsControlExtensionNode.setAttribute("delayTime", Integer.toString(frameDelayMs / 10));
         graphicsControlExtensionNode.setAttribute("transparentColorIndex", "0");
+        root.appendChild(graphicsControlExtensionNode);
+        metaData.mergeTree(metaFormatName, root);
 
-        IIOMetadataNode appExtensionsNode = getNode(root, "ApplicationExtensions");
-        IIOMetadataNode child = new IIOMetadataNode("ApplicationExtension");
-        child.setAttribute("applicationID", "NETSCAPE");
-        child.setAttribute("authenticationCode", "2.0");
-
-        int loop = true ? 0 : 1;
-        child.setUserObject(new byte[]{0x1, (byte)(loop & 0xFF), (byte)((loop >> 8) & 0xFF)});
-        appExtensionsNode.appendChild(child);
-        
-        imageMetaData.setFromTree(metaFormatName, root);
-        
-        gifWriter.writeToSequence(new IIOImage(img, null, imageMetaData), imageWriteParam);
+        PipelineMetrics metrics = PipelineMetrics.get();
+        long start = metrics.start();
+        gifWriter.writeToSequence(new IIOImage(img, null, metaData), imageWriteParam);
+        metrics.stop("gif_encode", start);
     }
 
     public void close() throws IOException {
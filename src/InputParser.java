@@ -42,7 +42,10 @@ public class InputParser {
                 throw new IOException("Unsupported file format");
             }
             
+            PipelineMetrics metrics = PipelineMetrics.get();
+            long decodeStart = metrics.start();
             BufferedImage image = ImageIO.read(inputFile);
+            metrics.stop("decode", decodeStart);
             if (image == null) {
                 CLIUtils.printError("Failed to load image. Please ensure the file exists and is a valid image format.");
                 throw new IOException("Cannot read image file");
@@ -66,6 +69,7 @@ public class InputParser {
             }
             // Convert image to RGB matrix with progress bar
             CLIUtils.printInfo("Converting image to RGB matrix...");
+            long convertStart = metrics.start();
             this.rgbMatrix = new RGBMatrix(width, height);
             
             int[] rgbArray = image.getRGB(0, 0, width, height, null, 0, width);
@@ -78,6 +82,7 @@ public class InputParser {
                 }
             }
             CLIUtils.printProgressBar(100);
+            metrics.stop("rgb_convert", convertStart);
             System.out.println();
             CLIUtils.printSuccess("Image converted to RGB matrix");
             
@@ -0,0 +1,124 @@
+/**
+ * S(x, y) = Σ P(i, j) untuk i < x, j < y
+ * ΣBlok = S(x2, y2) - S(x1, y2) - S(x2, y1) + S(x1, y1)
+ *
+ * Memori ~36 byte per piksel: jumlah kanal disimpan sebagai int yang boleh overflow (aritmetika modulo 2^32),
+ * karena selisih empat sudutnya tetap eksak selama jumlah blok sendiri < 2^32, yaitu blok sampai
+ * MAX_SUM_PIXELS piksel; blok yang lebih besar dipecah dua. Jumlah kuadrat tetap long.
+ * RGBMatrix hanya membangun tabel ini untuk gambar sampai DEFAULT_MAX_PIXELS piksel.
+ */
+public class IntegralImage {
+    public static final long BYTES_PER_PIXEL = 3 * Integer.BYTES + 3 * Long.BYTES;
+    // ~151 MB tabel; bisa diubah dengan -Dquadtree.integralMaxPixels=<n> atau RGBMatrix.setIntegralImageMaxPixels
+    public static final long DEFAULT_MAX_PIXELS = Long.getLong("quadtree.integralMaxPixels", 1L << 22);
+    // 255 * MAX_SUM_PIXELS < 2^32
+    static final long MAX_SUM_PIXELS = 0xFFFFFFFFL / 255;
+
+    private static final int CHANNELS = 3;
+
+    private final int width, height;
+    private final int stride;
+    // Per sel berdampingan: sumR, sumG, sumB (int, modulo 2^32) dan sumSqR, sumSqG, sumSqB (long)
+    private final int[] sums;
+    private final long[] squares;
+
+    public IntegralImage(RGBMatrix rgbMatrix) {
+        this.width = rgbMatrix.getWidth();
+        this.height = rgbMatrix.getHeight();
+        this.stride = (width + 1) * CHANNELS;
+        this.sums = new int[stride * (height + 1)];
+        this.squares = new long[stride * (height + 1)];
+
+        for (int y = 0; y < height; y++) {
+            int rowR = 0, rowG = 0, rowB = 0;
+            long rowSqR = 0, rowSqG = 0, rowSqB = 0;
+            int above = y * stride + CHANNELS;
+            int current = above + stride;
+            for (int x = 0; x < width; x++, above += CHANNELS, current += CHANNELS) {
+                int rgb = rgbMatrix.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+                rowR += r;
+                rowG += g;
+                rowB += b;
+                rowSqR += r * r;
+                rowSqG += g * g;
+                rowSqB += b * b;
+                sums[current] = sums[above] + rowR;
+                sums[current + 1] = sums[above + 1] + rowG;
+                sums[current + 2] = sums[above + 2] + rowB;
+                squares[current] = squares[above] + rowSqR;
+                squares[current + 1] = squares[above + 1] + rowSqG;
+                squares[current + 2] = squares[above + 2] + rowSqB;
+            }
+        }
+    }
+
+    public static long estimateBytes(int width, int height) {
+        return (width + 1L) * (height + 1L) * BYTES_PER_PIXEL;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getCount(int x, int y, int width, int height) {
+        int x2 = Math.min(x + width, this.width);
+        int y2 = Math.min(y + height, this.height);
+        if (x2 <= x || y2 <= y) return 0;
+        return (long) (x2 - x) * (y2 - y);
+    }
+
+    public long getSum(int channel, int x, int y, int width, int height) {
+        int x2 = Math.min(x + width, this.width);
+        int y2 = Math.min(y + height, this.height);
+        if (x2 <= x || y2 <= y) return 0;
+        return sum(channel, x, y, x2, y2);
+    }
+
+    public long getSumOfSquares(int channel, int x, int y, int width, int height) {
+        int x2 = Math.min(x + width, this.width);
+        int y2 = Math.min(y + height, this.height);
+        if (x2 <= x || y2 <= y) return 0;
+        int top = y * stride + channel, bottom = y2 * stride + channel;
+        int left = x * CHANNELS, right = x2 * CHANNELS;
+        return squares[bottom + right] - squares[bottom + left] - squares[top + right] + squares[top + left];
+    }
+
+    public double getMean(int channel, int x, int y, int width, int height) {
+        return (double) getSum(channel, x, y, width, height) / getCount(x, y, width, height);
+    }
+
+    public double getVariance(int channel, int x, int y, int width, int height) {
+        double cnt = getCount(x, y, width, height);
+        double mean = getSum(channel, x, y, width, height) / cnt;
+        return getSumOfSquares(channel, x, y, width, height) / cnt - mean * mean;
+    }
+
+    public double[] calculateAverageRGB(int x, int y, int width, int height) {
+        double cnt = getCount(x, y, width, height);
+        return new double[]{
+            getSum(0, x, y, width, height) / cnt,
+            getSum(1, x, y, width, height) / cnt,
+            getSum(2, x, y, width, height) / cnt
+        };
+    }
+
+    // Selisih int modulo 2^32 dibaca unsigned; blok di atas MAX_SUM_PIXELS dipecah pada sisi terpanjang
+    private long sum(int channel, int x1, int y1, int x2, int y2) {
+        if ((long) (x2 - x1) * (y2 - y1) > MAX_SUM_PIXELS) {
+            if (x2 - x1 >= y2 - y1) {
+                int middle = x1 + (x2 - x1) / 2;
+                return sum(channel, x1, y1, middle, y2) + sum(channel, middle, y1, x2, y2);
+            }
+            int middle = y1 + (y2 - y1) / 2;
+            return sum(channel, x1, y1, x2, middle) + sum(channel, x1, middle, x2, y2);
+        }
+        int top = y1 * stride + channel, bottom = y2 * stride + channel;
+        int left = x1 * CHANNELS, right = x2 * CHANNELS;
+        return Integer.toUnsignedLong(sums[bottom + right] - sums[bottom + left] - sums[top + right] + sums[top + left]);
+    }
+}
@@ -0,0 +1,217 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+
+/**
+ * Palet GIF (maksimal 256 warna) yang dibangun langsung dari warna rata-rata leaf di dalam frame.
+ * Frame quadtree hanya berisi sebanyak itu warna berbeda, jadi biasanya paletnya persis; bila lebih
+ * dari 256, warna dikelompokkan dengan median cut berbobot jumlah piksel. Hasilnya frame
+ * TYPE_BYTE_INDEXED sehingga writer GIF tidak perlu mengkuantisasi frame sendiri.
+ */
+public class LeafPalette {
+    public static final int MAX_COLORS = 256;
+    private static final int EMPTY = -1;
+
+    // Hash set terbuka warna -> jumlah piksel dan indeks palet; used menyimpan slot terisi
+    private int[] keys = new int[1024];
+    private int[] counts = new int[1024];
+    private int[] paletteIndex = new int[1024];
+    private int[] used = new int[512];
+    private int size;
+
+    public LeafPalette() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    // Mengubah w x h piksel dari buffer RGB (offset, stride) menjadi gambar berindeks
+    public BufferedImage toIndexed(int[] pixels, int offset, int stride, int width, int height) {
+        clear();
+        for (int row = 0, start = offset; row < height; row++, start += stride) {
+            int run = 0, last = pixels[start];
+            for (int i = start, end = start + width; i < end; i++) {
+                int rgb = pixels[i];
+                if (rgb != last) {
+                    add(last, run);
+                    last = rgb;
+                    run = 0;
+                }
+                run++;
+            }
+            add(last, run);
+        }
+
+        byte[] reds = new byte[Math.min(size, MAX_COLORS)];
+        byte[] greens = new byte[reds.length];
+        byte[] blues = new byte[reds.length];
+        if (size <= MAX_COLORS) {
+            for (int i = 0; i < size; i++) {
+                int slot = used[i];
+                paletteIndex[slot] = i;
+                reds[i] = (byte) (keys[slot] >> 16);
+                greens[i] = (byte) (keys[slot] >> 8);
+                blues[i] = (byte) keys[slot];
+            }
+        } else {
+            medianCut(reds, greens, blues);
+        }
+
+        IndexColorModel colorModel = new IndexColorModel(8, reds.length, reds, greens, blues);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        byte[] indices = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int last = EMPTY;
+        byte lastIndex = 0;
+        for (int row = 0, start = offset, target = 0; row < height; row++, start += stride) {
+            for (int i = start, end = start + width; i < end; i++, target++) {
+                int rgb = pixels[i];
+                if (rgb != last) {
+                    last = rgb;
+                    lastIndex = (byte) paletteIndex[find(rgb)];
+                }
+                indices[target] = lastIndex;
+            }
+        }
+        return image;
+    }
+
+    private void clear() {
+        for (int i = 0; i < size; i++) {
+            keys[used[i]] = EMPTY;
+        }
+        size = 0;
+    }
+
+    private int find(int rgb) {
+        int mask = keys.length - 1;
+        int slot = (rgb * 0x9E3779B9) >>> 8 & mask;
+        while (keys[slot] != EMPTY && keys[slot] != rgb) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void add(int rgb, int count) {
+        int slot = find(rgb);
+        if (keys[slot] == EMPTY) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                slot = find(rgb);
+            }
+            keys[slot] = rgb;
+            counts[slot] = 0;
+            if (size == used.length) used = Arrays.copyOf(used, size * 2);
+            used[size++] = slot;
+        }
+        counts[slot] += count;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys, oldCounts = counts;
+        int[] oldUsed = Arrays.copyOf(used, size);
+        keys = new int[oldKeys.length * 2];
+        counts = new int[keys.length];
+        paletteIndex = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldUsed.length; i++) {
+            int slot = find(oldKeys[oldUsed[i]]);
+            keys[slot] = oldKeys[oldUsed[i]];
+            counts[slot] = oldCounts[oldUsed[i]];
+            used[i] = slot;
+        }
+    }
+
+    // Median cut: kotak dengan galat kuadrat berbobot terbesar dibelah pada median berbobot
+    // di kanal yang paling tersebar, sampai ada 256 kotak; warna palet = rata-rata berbobot kotak
+    private void medianCut(byte[] reds, byte[] greens, byte[] blues) {
+        // Kunci terurut: kanal (8 bit) | warna (24 bit) | bobot (31 bit)
+        long[] colors = new long[size];
+        for (int i = 0; i < size; i++) {
+            colors[i] = (long) keys[used[i]] << 31 | counts[used[i]];
+        }
+        int[] boxStart = new int[MAX_COLORS], boxEnd = new int[MAX_COLORS], boxChannel = new int[MAX_COLORS];
+        double[] boxError = new double[MAX_COLORS];
+        boxEnd[0] = size;
+        measure(colors, 0, 0, size, boxChannel, boxError);
+        int boxCount = 1;
+
+        while (boxCount < MAX_COLORS) {
+            int box = -1;
+            for (int i = 0; i < boxCount; i++) {
+                if (boxEnd[i] - boxStart[i] > 1 && boxError[i] > 0 && (box < 0 || boxError[i] > boxError[box])) {
+                    box = i;
+                }
+            }
+            if (box < 0) break;
+
+            int start = boxStart[box], end = boxEnd[box], shift = 16 - 8 * boxChannel[box];
+            for (int i = start; i < end; i++) {
+                colors[i] = (colors[i] & ((1L << 55) - 1)) | ((colors[i] >>> 31 >> shift) & 0xFF) << 55;
+            }
+            Arrays.sort(colors, start, end);
+            long total = 0;
+            for (int i = start; i < end; i++) total += colors[i] & 0x7FFFFFFF;
+            long half = 0;
+            int split = start + 1;
+            for (int i = start; i < end - 1; i++) {
+                half += colors[i] & 0x7FFFFFFF;
+                split = i + 1;
+                if (2 * half >= total) break;
+            }
+
+            boxStart[boxCount] = split;
+            boxEnd[boxCount] = end;
+            boxEnd[box] = split;
+            measure(colors, box, start, split, boxChannel, boxError);
+            measure(colors, boxCount, split, end, boxChannel, boxError);
+            boxCount++;
+        }
+
+        for (int box = 0; box < boxCount; box++) {
+            double weight = 0, r = 0, g = 0, b = 0;
+            for (int i = boxStart[box]; i < boxEnd[box]; i++) {
+                int rgb = (int) (colors[i] >>> 31) & 0xFFFFFF;
+                int w = (int) (colors[i] & 0x7FFFFFFF);
+                weight += w;
+                r += w * ((rgb >> 16) & 0xFF);
+                g += w * ((rgb >> 8) & 0xFF);
+                b += w * (rgb & 0xFF);
+                paletteIndex[find(rgb)] = box;
+            }
+            reds[box] = (byte) Math.round(r / weight);
+            greens[box] = (byte) Math.round(g / weight);
+            blues[box] = (byte) Math.round(b / weight);
+        }
+        // Sisa entri (bila kotak habis sebelum 256) tidak pernah dipakai
+        for (int box = boxCount; box < reds.length; box++) {
+            reds[box] = reds[0];
+            greens[box] = greens[0];
+            blues[box] = blues[0];
+        }
+    }
+
+    // Galat kuadrat berbobot per kanal; kanal terbesar menjadi sumbu pembelahan kotak
+    private static void measure(long[] colors, int box, int start, int end, int[] boxChannel, double[] boxError) {
+        double weight = 0;
+        double[] sum = new double[3], sumSquares = new double[3];
+        for (int i = start; i < end; i++) {
+            int rgb = (int) (colors[i] >>> 31) & 0xFFFFFF;
+            double w = colors[i] & 0x7FFFFFFF;
+            weight += w;
+            for (int channel = 0; channel < 3; channel++) {
+                int value = (rgb >> (16 - 8 * channel)) & 0xFF;
+                sum[channel] += w * value;
+                sumSquares[channel] += w * value * value;
+            }
+        }
+        double total = 0, widest = -1;
+        for (int channel = 0; channel < 3; channel++) {
+            double error = sumSquares[channel] - sum[channel] * sum[channel] / weight;
+            total += error;
+            if (error > widest) {
+                widest = error;
+                boxChannel[box] = channel;
+            }
+        }
+        boxError[box] = total;
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Klien uji beban lokal untuk CompressionServer: mengirim gambar yang sama berulang kali dengan
+ * sejumlah koneksi bersamaan, lalu melaporkan throughput dan latensi p50/p90/p99/maks.
+ *
+ * java -cp bin LoadTestClient <url /compress?...> <gambar> [--requests N] [--concurrency C] [--warmup W]
+ */
+public class LoadTestClient {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Penggunaan: java LoadTestClient <url> <gambar> [--requests N] [--concurrency C] [--warmup W]");
+            System.out.println("  contoh: java LoadTestClient \"http://localhost:8080/compress?metric=variance&threshold=200&min-block=4\" test/tc/tc3.jpg");
+            System.exit(2);
+        }
+        URI uri = URI.create(args[0]);
+        byte[] image = Files.readAllBytes(new File(args[1]).toPath());
+        int requests = 50, concurrency = 4, warmup = -1;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--requests" -> requests = Integer.parseInt(args[++i]);
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Argumen tidak dikenali: " + args[i]);
+            }
+        }
+        if (requests <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("--requests dan --concurrency harus positif.");
+        }
+        if (warmup < 0) warmup = concurrency;
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMinutes(5))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(image))
+                .build();
+
+        // Pemanasan agar JIT server tidak masuk ke angka latensi
+        for (int i = 0; i < warmup; i++) {
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        }
+
+        long[] latencies = new long[requests];
+        int[] statuses = new int[requests];
+        int total = requests;
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+                        long t0 = System.nanoTime();
+                        try {
+                            statuses[i] = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+                        } catch (IOException e) {
+                            statuses[i] = -1;
+                        }
+                        latencies[i] = System.nanoTime() - t0;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) worker.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Integer> statusCounts = new TreeMap<>();
+        for (int status : statuses) {
+            statusCounts.merge(status < 0 ? "gagal koneksi" : String.valueOf(status), 1, Integer::sum);
+        }
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+
+        CLIUtils.printSectionHeader("LOAD TEST");
+        System.out.println("URL: " + uri + ", gambar " + args[1] + " (" + image.length + " bytes)");
+        String[] headers = {"Parameter", "Nilai"};
+        int[] columnWidths = {24, 40};
+        String[][] data = {
+            {"Requests / concurrency", requests + " / " + concurrency},
+            {"Status", statusCounts.toString()},
+            {"Wall time", String.format("%.2f s", wallSeconds)},
+            {"Throughput", String.format("%.2f req/s", requests / wallSeconds)},
+            {"Latency p50", String.format("%.1f ms", percentile(sorted, 50) / 1e6)},
+            {"Latency p90", String.format("%.1f ms", percentile(sorted, 90) / 1e6)},
+            {"Latency p99", String.format("%.1f ms", percentile(sorted, 99) / 1e6)},
+            {"Latency max", String.format("%.1f ms", sorted[sorted.length - 1] / 1e6)}
+        };
+        OutputHandler.printTable(headers, data, columnWidths);
+    }
+
+    // Nearest-rank percentile dari array terurut
+    private static long percentile(long[] sorted, double percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
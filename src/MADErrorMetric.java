@@ -5,27 +5,29 @@
 public class MADErrorMetric implements ErrorMetric {
     @Override
     public double calculateError(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
-        int cnt = 0;
-        double avgR = 0, avgG = 0, avgB = 0;
         double[] avgRGB = rgbMatrix.calculateAverageRGB(x, y, width, height);
-        avgR = avgRGB[0]; avgG = avgRGB[1]; avgB = avgRGB[2];
-        double madR = 0, madG = 0, madB = 0;
-        for (int y1 = y; y1 < y + height; y1++) {
-            for (int x1 = x; x1 < x + width; x1++) {
-                Pixel col = rgbMatrix.getPixel(x1, y1);
-                madR += Math.abs(col.getR() - avgR);
-                madG += Math.abs(col.getG() - avgG);
-                madB += Math.abs(col.getB() - avgB);
-                cnt++;
-            }
-        }
-        madR /= cnt;
-        madG /= cnt;
-        madB /= cnt;
-        
+        // Pivot p = floor(μ), f = μ - p. Untuk c bulat: c ≤ p memberi |c - μ| = |c - p| + f, c > p memberi
+        // |c - μ| = |c - p| - f, sehingga Σ|c - μ| = Σ|c - p| + f * (N - 2 * jumlah c > p)
+        int[] pivots = {(int) avgRGB[0], (int) avgRGB[1], (int) avgRGB[2]};
+        long[] sums = new long[ChannelKernels.ABSOLUTE_SUMS];
+        ChannelKernels.absoluteSums(rgbMatrix, x, y, width, height, pivots, sums);
+        double cnt = (double) width * height;
+        double madR = mad(sums, 0, avgRGB[0] - pivots[0], cnt);
+        double madG = mad(sums, 1, avgRGB[1] - pivots[1], cnt);
+        double madB = mad(sums, 2, avgRGB[2] - pivots[2], cnt);
+
         return (madR + madG + madB) / 3.0;
     }
 
+    private static double mad(long[] sums, int channel, double fraction, double cnt) {
+        return (sums[channel] + fraction * (cnt - 2 * sums[3 + channel])) / cnt;
+    }
+
+    @Override
+    public boolean isSampleEstimable() {
+        return true;
+    }
+
     @Override
     public String getName() {
         return "MADErrorMetric";
@@ -1,9 +1,85 @@
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import javax.imageio.ImageIO;
 
 public class Main {
+    // Frame yang boleh menunggu encoder; kecil agar memori tetap datar
+    private static final int GIF_QUEUE_CAPACITY = 2;
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--render")) {
+            runRender(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            runServer(args);
+            return;
+        }
+
+        boolean parallelBuild = false;
+        int parallelCutoff = QuadTree.DEFAULT_PARALLEL_CUTOFF;
+        boolean metricsEnabled = false;
+        String metricsPath = null;
+        // Negatif = split selalu dengan error eksak
+        double sampledMargin = -1;
+        double sampledTolerance = SampledSplit.DEFAULT_TOLERANCE;
+        for (String arg : args) {
+            if (arg.equals("--metrics")) {
+                metricsEnabled = true;
+            } else if (arg.startsWith("--metrics=")) {
+                metricsEnabled = true;
+                metricsPath = arg.substring("--metrics=".length());
+            } else if (arg.equals("--sampled-split")) {
+                sampledMargin = SampledSplit.DEFAULT_MARGIN;
+            } else if (arg.startsWith("--sampled-split=")) {
+                try {
+                    sampledMargin = Double.parseDouble(arg.substring("--sampled-split=".length()));
+                } catch (NumberFormatException e) {
+                    sampledMargin = Double.NaN;
+                }
+                if (!(sampledMargin >= 0)) {
+                    CLIUtils.printError("Margin split sampel harus berupa bilangan tidak negatif.");
+                    return;
+                }
+            } else if (arg.startsWith("--sampled-tolerance=")) {
+                if (sampledMargin < 0) sampledMargin = SampledSplit.DEFAULT_MARGIN;
+                try {
+                    sampledTolerance = Double.parseDouble(arg.substring("--sampled-tolerance=".length()));
+                } catch (NumberFormatException e) {
+                    sampledTolerance = Double.NaN;
+                }
+                if (!(sampledTolerance >= 0 && sampledTolerance <= 1)) {
+                    CLIUtils.printError("Toleransi split sampel harus di antara 0 dan 1.");
+                    return;
+                }
+            } else if (arg.equals("--parallel")) {
+                parallelBuild = true;
+            } else if (arg.startsWith("--parallel-cutoff=")) {
+                parallelBuild = true;
+                try {
+                    parallelCutoff = Integer.parseInt(arg.substring("--parallel-cutoff=".length()));
+                } catch (NumberFormatException e) {
+                    CLIUtils.printError("Parallel cutoff harus berupa bilangan bulat.");
+                    return;
+                }
+                if (parallelCutoff <= 0) {
+                    CLIUtils.printError("Parallel cutoff harus positif.");
+                    return;
+                }
+            } else {
+                CLIUtils.printError("Argumen tidak dikenali: " + arg);
+                return;
+            }
+        }
+
+        SampledSplit sampledSplit = sampledMargin >= 0 ? new SampledSplit(sampledMargin, sampledTolerance) : null;
+        PipelineMetrics metrics = metricsEnabled ? PipelineMetrics.enable() : PipelineMetrics.get();
         InputParser parser = new InputParser();
         
         try {
@@ -13,19 +89,27 @@ public class Main {
             long startTime = System.currentTimeMillis();
             if (!parser.isTargetCompressionSet()) {
                 QuadTree quadTree = new QuadTree(rgbMatrix, parser.getErrorMetric(), parser.getThreshold(), parser.getMinBlockSize());
+                quadTree.setParallel(parallelBuild, parallelCutoff);
+                quadTree.setSampledSplit(sampledSplit);
                 quadTree.buildTree();
                 
                 long endTime = System.currentTimeMillis();
                 long elapsedTime = endTime - startTime;
                 
                 OutputHandler.writeImage(quadTree, parser.getOutputPath(), parser.getInputFile(), elapsedTime);
+                if (sampledSplit != null) {
+                    CLIUtils.printInfo("Split sampel (" + sampledSplit + "): " + quadTree.getSampledSplitStatistics());
+                }
     
                 if (!parser.getGifPath().isEmpty()) {
                     saveGifEfficiently(quadTree, parser.getGifPath(), 500);
                 }
             }
             else {
-                CompressionController controller = new CompressionController();
+                if (sampledSplit != null) {
+                    CLIUtils.printInfo("--sampled-split diabaikan pada mode target kompresi.");
+                }
+                CompressionController controller = new CompressionController(parallelBuild, parallelCutoff);
                 CompressedImage compressedImage = controller.compressWithTarget(
                     rgbMatrix,
                     parser.getErrorMetric(),
@@ -44,6 +128,13 @@ public class Main {
                 }
             }
 
+            if (metrics.isEnabled()) {
+                OutputHandler.printMetrics(metrics);
+                if (metricsPath != null) {
+                    metrics.writeTo(new File(metricsPath).toPath());
+                    CLIUtils.printSuccess("Metrics saved to " + metricsPath);
+                }
+            }
 
         } catch (IOException e) {
             System.err.println("[ERROR] Terjadi kesalahan saat membaca file gambar: " + e.getMessage());
@@ -64,34 +155,19 @@ public class Main {
             CLIUtils.printSectionHeader("CREATING GIF VISUALIZATION");
             System.out.println(CLIUtils.BOLD + "Generating frames and saving GIF..." + CLIUtils.RESET);
             
-            MemoryEfficientGifWriter efficientWriter = new MemoryEfficientGifWriter(gifPath, BufferedImage.TYPE_INT_RGB, true);
-    
-            int maxDepth = quadTree.getMaxDepth();
-            int frameCount = Math.min(maxDepth + 1, 15);
-            double depthStep = maxDepth / (double)(frameCount - 1);
-    
-            for (int i = 0; i < frameCount; i++) {
-                int depth = (int)Math.round(i * depthStep);
-                RGBMatrix depthMatrix = new RGBMatrix(quadTree.getRGBMatrix().getWidth(), quadTree.getRGBMatrix().getHeight());
-                
-                // Show current progress
-                int percent = (i * 100) / frameCount;
-                CLIUtils.printProgressBar(percent);
-                
-                quadTree.applyColorsAtDepth(quadTree.getRoot(), depthMatrix, depth, 0);
-                
-                BufferedImage frame = OutputHandler.convertToBufferedImage(depthMatrix);
-                efficientWriter.writeFrame(frame, frameDelay);
-    
-                depthMatrix = null;
-                System.gc();
+            // Frame dibuat di thread ini sementara frame sebelumnya di-encode di thread latar
+            MemoryEfficientGifWriter efficientWriter = new MemoryEfficientGifWriter(gifPath, BufferedImage.TYPE_INT_RGB, true, GIF_QUEUE_CAPACITY);
+            try {
+                new QuadTreeGifRenderer(quadTree).write(efficientWriter, frameDelay, CLIUtils::printProgressBar);
+            } finally {
+                // Menunggu encoder menyelesaikan antrian
+                efficientWriter.close();
             }
             
             // Complete the progress bar
             CLIUtils.printProgressBar(100);
             System.out.println();
     
-            efficientWriter.close();
             CLIUtils.printSuccess("GIF animation saved successfully to " + gifPath);
         } catch (IOException e) {
             CLIUtils.printError("Failed to save GIF: " + e.getMessage());
@@ -100,4 +176,60 @@ public class Main {
     }
 
 
-}
\ No newline at end of file
+
+    // Merender file .qtree ke gambar tanpa membangun ulang pohon
+    private static void runRender(String[] args) {
+        if (args.length != 3) {
+            CLIUtils.printError("Penggunaan: java Main --render <file.qtree> <output.png|jpg>");
+            System.exit(2);
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            QuadTree quadTree = QuadTreeCodec.read(new File(args[1]).toPath());
+            String format = OutputHandler.getFormatFromPath(args[2]);
+            if (format == null) {
+                CLIUtils.printError("Format gambar tidak dikenali.");
+                System.exit(2);
+            }
+            BufferedImage image = quadTree.render();
+            if (!ImageIO.write(image, format, new File(args[2]))) {
+                throw new IOException("No writer for format " + format);
+            }
+            System.out.printf("%dx%d, %d node, max depth %d, %d ms%n", image.getWidth(), image.getHeight(),
+                    quadTree.getNodeCount(), quadTree.getMaxDepth(), System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            CLIUtils.printError("Gagal merender " + args[1] + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runServer(String[] args) {
+        try {
+            CompressionServer.fromArgs(args).start();
+        } catch (IllegalArgumentException e) {
+            CLIUtils.printError(e.getMessage());
+            CompressionServer.printUsage();
+            System.exit(2);
+        } catch (IOException e) {
+            CLIUtils.printError("Gagal menjalankan server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runBatch(String[] args) {
+        try {
+            BatchCompressor batch = BatchCompressor.fromArgs(args);
+            if (!batch.run()) System.exit(1);
+        } catch (IllegalArgumentException e) {
+            CLIUtils.printError(e.getMessage());
+            BatchCompressor.printUsage();
+            System.exit(2);
+        } catch (IOException e) {
+            CLIUtils.printError("Gagal membaca daftar input: " + e.getMessage());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * RGBMatrix yang pikselnya dibaca langsung dari file cache mentah lewat MappedByteBuffer,
+ * sehingga gambar hanya perlu di-decode sekali dan percobaan berikutnya tinggal me-map file.
+ *
+ * Format cache (.rgbm, little-endian): "RGBM", versi, width, height, lalu width x height int RGB
+ * terpaket (0x00RRGGBB) baris demi baris, tata letak yang sama dengan RGBMatrix di heap.
+ * File di-map PRIVATE (copy-on-write), jadi setPixel pada matriks ini tidak pernah mengubah file cache
+ * (QuadTree sendiri hanya membaca sumber; hasil dirender ke gambar terpisah). Mapping dipotong per 2^28
+ * piksel karena satu buffer dibatasi 2 GB.
+ */
+public class MappedRGBMatrix extends RGBMatrix {
+    public static final String EXTENSION = ".rgbm";
+    private static final int MAGIC = 0x4D424752; // "RGBM" little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SEGMENT_BITS = 28;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+    private static final int WRITE_BUFFER_PIXELS = 1 << 16;
+    private static final int DECODE_BAND_PIXELS = 1 << 22;
+
+    private final Path path;
+    private final int width;
+    private final IntBuffer[] segments;
+    private volatile boolean modified;
+
+    private MappedRGBMatrix(Path path, int width, int height, IntBuffer[] segments) {
+        super(width, height, null);
+        this.path = path;
+        this.width = width;
+        this.segments = segments;
+        // Integral image (~36 byte/piksel di heap) menggugurkan tujuan matriks ini; aktifkan manual bila perlu
+        setIntegralImageEnabled(false);
+    }
+
+    // Mapping PRIVATE mensyaratkan channel baca-tulis, walaupun file tidak pernah ditulis
+    public static MappedRGBMatrix open(Path cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) throw new IOException("File cache RGB terpotong: " + cache);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Bukan file cache RGB (" + EXTENSION + "): " + cache);
+            }
+            int width = header.getInt(), height = header.getInt();
+            long pixelCount = (long) width * height;
+            if (width <= 0 || height <= 0 || pixelCount > Integer.MAX_VALUE
+                    || channel.size() != HEADER_SIZE + 4 * pixelCount) {
+                throw new IOException("File cache RGB rusak: " + cache);
+            }
+
+            IntBuffer[] segments = new IntBuffer[(int) ((pixelCount + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i << SEGMENT_BITS;
+                long count = Math.min(1L << SEGMENT_BITS, pixelCount - first);
+                segments[i] = channel.map(FileChannel.MapMode.PRIVATE, HEADER_SIZE + 4 * first, 4 * count)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            return new MappedRGBMatrix(cache, width, height, segments);
+        }
+    }
+
+    // Memakai cache bila ada dan tidak lebih tua dari gambarnya; selain itu decode sekali lalu tulis cache
+    public static MappedRGBMatrix openOrCreate(File image, Path cache) throws IOException {
+        if (Files.isRegularFile(cache) && Files.getLastModifiedTime(cache).toMillis() >= image.lastModified()) {
+            try {
+                return open(cache);
+            } catch (IOException e) {
+                // Cache rusak atau versi lama: dibuat ulang di bawah
+            }
+        }
+        createCache(image, cache);
+        return open(cache);
+    }
+
+    // Decode gambar sekali per pita baris (BandImageReader, seperti TiledCompressor) sehingga gambar utuh
+    // tidak pernah ada di heap
+    public static void createCache(File image, Path cache) throws IOException {
+        try (BandImageReader reader = new BandImageReader(image)) {
+            int width = reader.getWidth(), height = reader.getHeight();
+            try (CacheWriter writer = new CacheWriter(cache, width, height)) {
+                reader.read(Math.max(1, DECODE_BAND_PIXELS / width), (rgb, y, rows) -> writer.write(rgb, rows * width));
+            }
+        }
+    }
+
+    public static void writeCache(RGBMatrix rgbMatrix, Path cache) throws IOException {
+        int width = rgbMatrix.getWidth(), height = rgbMatrix.getHeight();
+        int bandRows = Math.max(1, WRITE_BUFFER_PIXELS / width);
+        try (CacheWriter writer = new CacheWriter(cache, width, height)) {
+            int[] rows = new int[Math.min(bandRows, height) * width];
+            for (int y = 0; y < height; y += bandRows) {
+                int count = Math.min(bandRows, height - y);
+                rgbMatrix.copyRows(y, count, rows, 0);
+                writer.write(rows, count * width);
+            }
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void setPixel(int x, int y, int pixel) {
+        checkBounds(x, y);
+        int index = y * width + x;
+        segments[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, pixel & 0xFFFFFF);
+        modified = true;
+        invalidateCaches();
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height, int rgb) {
+        int x1 = Math.max(x, 0), x2 = Math.min(x + width, this.width);
+        int y1 = Math.max(y, 0), y2 = Math.min(y + height, getHeight());
+        if (x1 >= x2 || y1 >= y2) return;
+        for (int row = y1; row < y2; row++) {
+            for (int index = row * this.width + x1, end = row * this.width + x2; index < end; index++) {
+                segments[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, rgb & 0xFFFFFF);
+            }
+        }
+        modified = true;
+        invalidateCaches();
+    }
+
+    @Override
+    public Pixel getPixel(int x, int y) {
+        checkBounds(x, y);
+        int rgb = getRGB(x, y);
+        return new Pixel((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    @Override
+    public int getRGB(int x, int y) {
+        int index = y * width + x;
+        return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+    }
+
+    @Override
+    public int getR(int x, int y) {
+        return (getRGB(x, y) >> 16) & 0xFF;
+    }
+
+    @Override
+    public int getG(int x, int y) {
+        return (getRGB(x, y) >> 8) & 0xFF;
+    }
+
+    @Override
+    public int getB(int x, int y) {
+        return getRGB(x, y) & 0xFF;
+    }
+
+    @Override
+    public Pixel[] getPixels() {
+        Pixel[] result = new Pixel[width * getHeight()];
+        for (int i = 0; i < result.length; i++) {
+            int rgb = segments[i >>> SEGMENT_BITS].get(i & SEGMENT_MASK);
+            result[i] = new Pixel((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+        }
+        return result;
+    }
+
+    // Tidak ada array heap di balik matriks ini; pemanggil memakai getRGB() atau copyRows()
+    @Override
+    public int[] heapPixelsOrNull() {
+        return null;
+    }
+
+    @Override
+    public void copyRows(int y, int rows, int[] target, int offset) {
+        long start = (long) y * width;
+        int remaining = rows * width;
+        while (remaining > 0) {
+            int index = (int) start;
+            int count = Math.min(remaining, (1 << SEGMENT_BITS) - (index & SEGMENT_MASK));
+            segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK, target, offset, count);
+            start += count;
+            offset += count;
+            remaining -= count;
+        }
+    }
+
+    // Selama belum diubah, salinan cukup me-map ulang file (copy-on-write); setelah diubah disalin ke heap
+    @Override
+    public RGBMatrix copy() {
+        if (!modified) {
+            try {
+                MappedRGBMatrix copy = open(path);
+                copySettingsTo(copy);
+                return copy;
+            } catch (IOException e) {
+                // File cache hilang/berubah: jatuh ke salinan heap
+            }
+        }
+        return super.copy();
+    }
+
+    private void checkBounds(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("ERROR: Posisi pixel (" + x + ", " + y + ") di luar batas.");
+        }
+    }
+
+    // Menulis header lalu piksel secara berurutan ke file sementara, kemudian dipindah ke tujuan
+    // agar cache yang terpotong (mis. proses dihentikan) tidak pernah terbaca sebagai cache valid
+    private static class CacheWriter implements AutoCloseable {
+        private final Path cache, temp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(4 * WRITE_BUFFER_PIXELS).order(ByteOrder.LITTLE_ENDIAN);
+        private final long expectedPixels;
+        private long pixelsWritten;
+
+        CacheWriter(Path cache, int width, int height) throws IOException {
+            if ((long) width * height > Integer.MAX_VALUE) {
+                throw new IOException("Gambar terlalu besar untuk cache RGB.");
+            }
+            this.cache = cache;
+            Path parent = cache.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            this.temp = Files.createTempFile(parent, cache.getFileName().toString(), ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.expectedPixels = (long) width * height;
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+        }
+
+        void write(int[] rgb, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (!buffer.hasRemaining()) flush();
+                buffer.putInt(rgb[i] & 0xFFFFFF);
+            }
+            pixelsWritten += count;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean complete = false;
+            try {
+                flush();
+                complete = pixelsWritten == expectedPixels;
+            } finally {
+                channel.close();
+                if (complete) {
+                    Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            if (!complete) {
+                throw new IOException("Cache RGB belum lengkap: " + pixelsWritten + " dari " + expectedPixels + " piksel.");
+            }
+        }
+    }
+}
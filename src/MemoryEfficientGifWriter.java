@@ -1,25 +1,132 @@
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
 
+/**
+ * Penulis GIF per frame. Dengan queueCapacity > 0 encoding (LZW) berjalan di thread latar
+ * sehingga frame berikutnya bisa dibuat sambil frame sebelumnya di-encode. Antrian dibatasi:
+ * writeFrame menunggu bila antrian penuh, jadi memori tetap datar berapa pun jumlah frame.
+ */
 public class MemoryEfficientGifWriter {
+    private static final Frame END = new Frame(null, 0, 0, 0);
+
     private GifSequenceWriter gifWriter;
     private ImageOutputStream outputStream;
+    private final BlockingQueue<Frame> queue;
+    private final Thread encoder;
+    private volatile Throwable failure;
+    private boolean closed;
+
+    private static class Frame {
+        final BufferedImage image;
+        final int left, top, delay;
+
+        Frame(BufferedImage image, int left, int top, int delay) {
+            this.image = image;
+            this.left = left;
+            this.top = top;
+            this.delay = delay;
+        }
+    }
 
     public MemoryEfficientGifWriter(String outputPath, int imageType, boolean loopContinuously) throws IOException {
-        outputStream = new FileImageOutputStream(new File(outputPath));
+        this(outputPath, imageType, loopContinuously, 0);
+    }
+
+    // queueCapacity = 0: frame di-encode langsung di thread pemanggil
+    public MemoryEfficientGifWriter(String outputPath, int imageType, boolean loopContinuously, int queueCapacity) throws IOException {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Kapasitas antrian GIF tidak boleh negatif.");
+        }
+        // FileImageOutputStream tidak memotong file lama; tanpa setLength(0) sisa GIF lama yang lebih besar tertinggal
+        RandomAccessFile file = new RandomAccessFile(new File(outputPath), "rw");
+        file.setLength(0);
+        outputStream = new FileImageOutputStream(file);
         gifWriter = new GifSequenceWriter(outputStream, imageType, loopContinuously);
+        if (queueCapacity > 0) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            encoder = new Thread(this::encodeLoop, "gif-encoder");
+            encoder.setDaemon(true);
+            encoder.start();
+        } else {
+            queue = null;
+            encoder = null;
+        }
     }
 
     public void writeFrame(BufferedImage frame, int frameDelay) throws IOException {
-        gifWriter.writeToSequence(frame, frameDelay);
-        frame.flush();
+        writeFrame(frame, 0, 0, frameDelay);
+    }
+
+    // Mode async: frame diserahkan ke encoder dan tidak boleh diubah lagi oleh pemanggil
+    public void writeFrame(BufferedImage frame, int left, int top, int frameDelay) throws IOException {
+        if (closed) {
+            throw new IOException("GIF writer sudah ditutup.");
+        }
+        if (encoder == null) {
+            gifWriter.writeToSequence(frame, left, top, frameDelay);
+            frame.flush();
+            return;
+        }
+        checkFailure();
+        try {
+            queue.put(new Frame(frame, left, top, frameDelay));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Penulisan GIF dibatalkan.");
+        }
+    }
+
+    // Encoder terus mengosongkan antrian sampai END walaupun gagal, agar produsen tidak macet di put()
+    private void encodeLoop() {
+        try {
+            for (Frame frame = queue.take(); frame != END; frame = queue.take()) {
+                if (failure != null) continue;
+                try {
+                    gifWriter.writeToSequence(frame.image, frame.left, frame.top, frame.delay);
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                frame.image.flush();
+            }
+        } catch (InterruptedException e) {
+            failure = e;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable error = failure;
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error != null) {
+            throw new IOException("Encoding GIF gagal: " + error.getMessage(), error);
+        }
     }
 
     public void close() throws IOException {
-        gifWriter.close();
-        outputStream.close();
+        if (closed) return;
+        closed = true;
+        try {
+            if (encoder != null) {
+                try {
+                    queue.put(END);
+                    encoder.join();
+                } catch (InterruptedException e) {
+                    encoder.interrupt();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Penulisan GIF dibatalkan.");
+                }
+                checkFailure();
+            }
+            gifWriter.close();
+        } finally {
+            outputStream.close();
+        }
     }
 }
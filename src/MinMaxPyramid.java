@@ -0,0 +1,178 @@
+/**
+ * Piramida min/max per kanal: level k menyimpan min/max setiap tile 2^k x 2^k yang sejajar grid,
+ * dibangun bottom-up dari 4 tile anak level k-1 (level 0 = piksel).
+ * Query blok memakai tile terbesar yang seluruhnya berada di dalam blok dan hanya turun level
+ * di tepi blok, sehingga piksel tidak di-scan ulang untuk setiap level quadtree.
+ *
+ * Memori: 8 byte per tile, total ~ 8/3 byte/piksel untuk semua level; maxLevel membatasi level teratas
+ * (lebih sedikit memori, lebih banyak lookup di level atas).
+ */
+public class MinMaxPyramid {
+    public static final int DEFAULT_MAX_LEVEL = 16;
+    private static final int EMPTY_MIN = 0xFFFFFF;
+    private static final int EMPTY_MAX = 0;
+    // Hasil query blok kosong; juga nilai awal untuk combine()
+    static final long EMPTY = pack(EMPTY_MIN, EMPTY_MAX);
+
+    private final RGBMatrix rgbMatrix;
+    private final int width, height;
+    private final int maxLevel;
+    // minLevels[k] / maxLevels[k]: min/max RGB terpaket per tile, baris demi baris, untuk k >= 1;
+    // level 0 dibaca langsung dari rgbMatrix sehingga matriks ber-backing file tidak disalin ke heap
+    private final int[][] minLevels;
+    private final int[][] maxLevels;
+    private final int[] levelWidths, levelHeights;
+
+    public MinMaxPyramid(RGBMatrix rgbMatrix, int maxLevel) {
+        if (maxLevel < 0) {
+            throw new IllegalArgumentException("Level piramida min/max tidak boleh negatif.");
+        }
+        this.rgbMatrix = rgbMatrix;
+        this.width = rgbMatrix.getWidth();
+        this.height = rgbMatrix.getHeight();
+
+        int usableLevel = 0;
+        while (usableLevel < maxLevel && (1 << usableLevel) < Math.max(width, height)) {
+            usableLevel++;
+        }
+        this.maxLevel = usableLevel;
+        this.minLevels = new int[usableLevel + 1][];
+        this.maxLevels = new int[usableLevel + 1][];
+        this.levelWidths = new int[usableLevel + 1];
+        this.levelHeights = new int[usableLevel + 1];
+        levelWidths[0] = width;
+        levelHeights[0] = height;
+
+        for (int k = 1; k <= usableLevel; k++) {
+            int sourceWidth = levelWidths[k - 1], sourceHeight = levelHeights[k - 1];
+            int levelWidth = (sourceWidth + 1) / 2, levelHeight = (sourceHeight + 1) / 2;
+            int[] levelMin = new int[levelWidth * levelHeight];
+            int[] levelMax = new int[levelWidth * levelHeight];
+            if (k == 1) {
+                buildFirstLevel(levelMin, levelMax, levelWidth, levelHeight);
+            } else {
+                buildLevel(minLevels[k - 1], maxLevels[k - 1], sourceWidth, sourceHeight,
+                        levelMin, levelMax, levelWidth, levelHeight);
+            }
+            minLevels[k] = levelMin;
+            maxLevels[k] = levelMax;
+            levelWidths[k] = levelWidth;
+            levelHeights[k] = levelHeight;
+        }
+    }
+
+    private static void buildLevel(int[] sourceMin, int[] sourceMax, int sourceWidth, int sourceHeight,
+                                   int[] levelMin, int[] levelMax, int levelWidth, int levelHeight) {
+        for (int ty = 0; ty < levelHeight; ty++) {
+            int top = 2 * ty * sourceWidth;
+            // Tile di tepi bawah/kanan bisa hanya punya 1 anak per sumbu
+            int bottom = 2 * ty + 1 < sourceHeight ? top + sourceWidth : top;
+            int out = ty * levelWidth;
+            for (int tx = 0; tx < levelWidth; tx++) {
+                int left = 2 * tx;
+                int right = left + 1 < sourceWidth ? left + 1 : left;
+                levelMin[out + tx] = minRGB(minRGB(sourceMin[top + left], sourceMin[top + right]),
+                                            minRGB(sourceMin[bottom + left], sourceMin[bottom + right]));
+                levelMax[out + tx] = maxRGB(maxRGB(sourceMax[top + left], sourceMax[top + right]),
+                                            maxRGB(sourceMax[bottom + left], sourceMax[bottom + right]));
+            }
+        }
+    }
+
+    // Level 1 dari piksel: tile 2x2, dipotong di tepi bawah/kanan seperti level lain
+    private void buildFirstLevel(int[] levelMin, int[] levelMax, int levelWidth, int levelHeight) {
+        for (int ty = 0; ty < levelHeight; ty++) {
+            int top = 2 * ty;
+            int bottom = Math.min(top + 1, height - 1);
+            int out = ty * levelWidth;
+            for (int tx = 0; tx < levelWidth; tx++) {
+                int left = 2 * tx;
+                int right = Math.min(left + 1, width - 1);
+                int topLeft = rgbMatrix.getRGB(left, top), topRight = rgbMatrix.getRGB(right, top);
+                int bottomLeft = rgbMatrix.getRGB(left, bottom), bottomRight = rgbMatrix.getRGB(right, bottom);
+                levelMin[out + tx] = minRGB(minRGB(topLeft, topRight), minRGB(bottomLeft, bottomRight));
+                levelMax[out + tx] = maxRGB(maxRGB(topLeft, topRight), maxRGB(bottomLeft, bottomRight));
+            }
+        }
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (int k = 1; k <= maxLevel; k++) {
+            bytes += 4L * (minLevels[k].length + maxLevels[k].length);
+        }
+        return bytes;
+    }
+
+    // Mengembalikan (min << 32) | max, keduanya RGB terpaket dengan min/max per kanal.
+    // Blok kosong menghasilkan min 0xFFFFFF dan max 0, sama seperti scan tanpa piksel.
+    public long query(int x, int y, int width, int height) {
+        int x2 = Math.min(x + width, this.width);
+        int y2 = Math.min(y + height, this.height);
+        if (x2 <= x || y2 <= y) return pack(EMPTY_MIN, EMPTY_MAX);
+
+        // Mulai dari level tertinggi yang tile-nya tidak lebih besar dari blok
+        int k = Math.min(maxLevel, 31 - Integer.numberOfLeadingZeros(Math.min(x2 - x, y2 - y)));
+        long minMax = pack(EMPTY_MIN, EMPTY_MAX);
+        for (int ty = y >> k; ty <= (y2 - 1) >> k; ty++) {
+            for (int tx = x >> k; tx <= (x2 - 1) >> k; tx++) {
+                minMax = combine(minMax, queryTile(k, tx, ty, x, y, x2, y2));
+            }
+        }
+        return minMax;
+    }
+
+    private long queryTile(int k, int tx, int ty, int x, int y, int x2, int y2) {
+        int tileX = tx << k, tileY = ty << k;
+        int tileX2 = Math.min(tileX + (1 << k), width);
+        int tileY2 = Math.min(tileY + (1 << k), height);
+        if (k == 0) {
+            int rgb = rgbMatrix.getRGB(tx, ty);
+            return pack(rgb, rgb);
+        }
+        if (x <= tileX && tileX2 <= x2 && y <= tileY && tileY2 <= y2) {
+            int index = ty * levelWidths[k] + tx;
+            return pack(minLevels[k][index], maxLevels[k][index]);
+        }
+
+        // Tile terpotong tepi blok: turun ke anak-anak yang beririsan dengan blok
+        long minMax = pack(EMPTY_MIN, EMPTY_MAX);
+        int half = 1 << (k - 1);
+        int childX = 2 * tx, childY = 2 * ty;
+        boolean left = x < tileX + half, right = x2 > tileX + half && tileX + half < width;
+        boolean top = y < tileY + half, bottom = y2 > tileY + half && tileY + half < height;
+        if (top && left) minMax = combine(minMax, queryTile(k - 1, childX, childY, x, y, x2, y2));
+        if (top && right) minMax = combine(minMax, queryTile(k - 1, childX + 1, childY, x, y, x2, y2));
+        if (bottom && left) minMax = combine(minMax, queryTile(k - 1, childX, childY + 1, x, y, x2, y2));
+        if (bottom && right) minMax = combine(minMax, queryTile(k - 1, childX + 1, childY + 1, x, y, x2, y2));
+        return minMax;
+    }
+
+    public static int getMin(long minMax) {
+        return (int) (minMax >>> 32);
+    }
+
+    public static int getMax(long minMax) {
+        return (int) minMax;
+    }
+
+    static long pack(int minRGB, int maxRGB) {
+        return ((long) minRGB << 32) | (maxRGB & 0xFFFFFFFFL);
+    }
+
+    static long combine(long a, long b) {
+        return pack(minRGB(getMin(a), getMin(b)), maxRGB(getMax(a), getMax(b)));
+    }
+
+    private static int minRGB(int a, int b) {
+        return Math.min(a & 0xFF0000, b & 0xFF0000) | Math.min(a & 0xFF00, b & 0xFF00) | Math.min(a & 0xFF, b & 0xFF);
+    }
+
+    private static int maxRGB(int a, int b) {
+        return Math.max(a & 0xFF0000, b & 0xFF0000) | Math.max(a & 0xFF00, b & 0xFF00) | Math.max(a & 0xFF, b & 0xFF);
+    }
+}
@@ -1,25 +1,16 @@
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DecimalFormat;
 import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageOutputStream;
 
 public class OutputHandler {
     public static void writeImage(QuadTree quadTree, String outputPath, File inputFile, long executionTime) throws IOException {
-        RGBMatrix rgbMatrix = quadTree.getRGBMatrix();
-        int width = rgbMatrix.getWidth();
-        int height = rgbMatrix.getHeight();
-
-        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-        Pixel[] pixels = rgbMatrix.getPixels();
-        int[] rgbArray = new int[pixels.length];
-        for (int i = 0; i < pixels.length; i++) {
-            rgbArray[i] = pixels[i].getRGB();
-        }
-        bufferedImage.setRGB(0, 0, width, height, rgbArray, 0, width);
+        BufferedImage bufferedImage = quadTree.render();
 
         String format = getFormatFromPath(outputPath);
         if (format == null) {
@@ -27,17 +18,11 @@ public class OutputHandler {
             return;
         }
 
-        try (ImageOutputStream ios = ImageIO.createImageOutputStream(new File(outputPath))) {
-            ImageIO.write(bufferedImage, format, ios);
-        } catch (IOException e) {
-            System.err.println("ERROR: Gagal menyimpan gambar ke " + outputPath + ": " + e.getMessage());
-            e.printStackTrace();
-        }
-
-        BufferedImage originalImage = ImageIO.read(inputFile);
-        BufferedImage compressedImage = ImageIO.read(new File(outputPath));
-        long originalSize = getImageSizeInBytes(originalImage, format);
-        long compressedSize = getImageSizeInBytes(compressedImage, format);
+        // Ukuran dari file di disk: tidak perlu decode ulang input/output lalu encode ulang ke memori
+        File outputFile = new File(outputPath);
+        if (!writeEncoded(bufferedImage, format, outputFile)) return;
+        long originalSize = inputFile.length();
+        long compressedSize = outputFile.length();
         
         double compressionPercentage = (1.0 - (double) compressedSize / originalSize) * 100;        
 
@@ -81,6 +66,13 @@ public class OutputHandler {
         System.out.println(bottomBorder);
     }
 
+    public static void printMetrics(PipelineMetrics metrics) {
+        String[] headers = {"Tahap", "Jumlah", "Total", "Maks"};
+        int[] columnWidths = {46, 9, 12, 12};
+        CLIUtils.printSectionHeader("PIPELINE METRICS");
+        printTable(headers, metrics.toTableRows(), columnWidths);
+    }
+
     public static void printTable(String[] headers, String[][] data, int[] columnWidths) {
         int totalWidth = 1;
         for (int width : columnWidths) {
@@ -137,7 +129,7 @@ public class OutputHandler {
         System.out.println(" │");
     }
 
-    private static String getFormatFromPath(String path) {
+    public static String getFormatFromPath(String path) {
         int dotIndex = path.lastIndexOf('.');
         if (dotIndex == -1 || dotIndex == path.length() - 1) {
             return null;
@@ -150,16 +142,8 @@ public class OutputHandler {
         int height = rgbMatrix.getHeight();
         BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
     
-        int[] rgbArray = new int[width * height];
-        Pixel[] pixels = rgbMatrix.getPixels();
-    
-        for (int i = 0; i < pixels.length; i++) {
-            rgbArray[i] = pixels[i].getRGB();
-        }
-    
-        bufferedImage.setRGB(0, 0, width, height, rgbArray, 0, width);
-    
-        rgbArray = null;
+        int[] rgbArray = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+        rgbMatrix.copyRows(0, height, rgbArray, 0);
     
         return bufferedImage;
     }
@@ -174,12 +158,7 @@ public class OutputHandler {
             return;
         }
 
-        try (ImageOutputStream ios = ImageIO.createImageOutputStream(new File(outputPath))) {
-            ImageIO.write(image, format, ios);
-        } catch (IOException e) {
-            System.err.println("ERROR: Gagal menyimpan gambar ke " + outputPath + ": " + e.getMessage());
-            e.printStackTrace();
-        }
+        if (!writeEncoded(image, format, new File(outputPath))) return;
         DecimalFormat df = new DecimalFormat("#.##");
         System.out.println("\n--- Compression Results ---");
         System.out.println("Execution time: " + df.format(executionTime / 1000.0) + " seconds");
@@ -189,11 +168,39 @@ public class OutputHandler {
     }
 
 
+    // Encode ke file sementara di direktori tujuan lalu dipindah, sehingga output lama hanya diganti bila encode
+    // berhasil; file sementara selalu baru, jadi panjangnya sama dengan jumlah byte hasil encode
+    private static boolean writeEncoded(BufferedImage image, String format, File outputFile) {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        long start = metrics.start();
+        File temp = null;
+        try {
+            temp = File.createTempFile(outputFile.getName(), ".tmp", outputFile.getAbsoluteFile().getParentFile());
+            try (ImageOutputStream ios = ImageIO.createImageOutputStream(temp)) {
+                if (ios == null) {
+                    throw new IOException("Tidak dapat membuka stream output.");
+                }
+                if (!ImageIO.write(image, format, ios)) {
+                    throw new IOException("Tidak ada writer untuk format " + format);
+                }
+            }
+            Files.move(temp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("ERROR: Gagal menyimpan gambar ke " + outputFile + ": " + e.getMessage());
+            e.printStackTrace();
+            if (temp != null) temp.delete();
+            return false;
+        } finally {
+            metrics.stop("encode", start);
+        }
+    }
+
     public static long getImageSizeInBytes(BufferedImage image, String formatName) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(image, formatName, baos);
-            baos.flush();
-            return baos.toByteArray().length;
+        try (CountingOutputStream counter = new CountingOutputStream()) {
+            ImageIO.write(image, formatName, counter);
+            return counter.getCount();
         } catch (IOException e) {
             e.printStackTrace();
             return 0;
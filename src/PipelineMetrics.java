@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timer dan counter tahap-tahap pipeline kompresi (decode, konversi RGB, build pohon, calculateError per
+ * metrik, render, encode, frame GIF, iterasi pencarian threshold), diekspor sebagai JSON atau teks Prometheus.
+ *
+ * Nonaktif secara default: get() mengembalikan registry DISABLED yang start() tidak memanggil nanoTime dan
+ * timer()/counter()-nya null. Hot path (mis. calculateError) mengambil Timer sekali di awal build lalu hanya
+ * memeriksa null per panggilan. Semua nilai memakai LongAdder sehingga aman dicatat dari banyak thread.
+ */
+public final class PipelineMetrics {
+    public static final PipelineMetrics DISABLED = new PipelineMetrics(false);
+    private static final String PROMETHEUS_PREFIX = "quadtree_";
+
+    private static volatile PipelineMetrics current = DISABLED;
+
+    private final boolean enabled;
+    // Nama -> (nilai label -> metrik); terurut agar ekspor deterministik
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        public void record(long elapsedNanos) {
+            count.increment();
+            nanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() { return count.sum(); }
+        public long getTotalNanos() { return nanos.sum(); }
+        public long getMaxNanos() { return maxNanos.get(); }
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() { return value.sum(); }
+    }
+
+    private static final class Family {
+        final boolean timer;
+        final String labelName;
+        final Map<String, Object> children = new ConcurrentSkipListMap<>();
+
+        Family(boolean timer, String labelName) {
+            this.timer = timer;
+            this.labelName = labelName;
+        }
+    }
+
+    public PipelineMetrics() {
+        this(true);
+    }
+
+    private PipelineMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static PipelineMetrics get() {
+        return current;
+    }
+
+    // Memasang registry aktif baru bila belum ada; dipanggil sekali saat startup (flag --metrics)
+    public static synchronized PipelineMetrics enable() {
+        if (!current.enabled) current = new PipelineMetrics();
+        return current;
+    }
+
+    public static synchronized void disable() {
+        current = DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 0 bila nonaktif, jadi pasangan start()/stop() tidak memanggil nanoTime sama sekali
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void stop(String name, long startNanos) {
+        if (enabled) timer(name, null, null).recordSince(startNanos);
+    }
+
+    public void increment(String name, long delta) {
+        if (enabled) counter(name, null, null).add(delta);
+    }
+
+    public Timer timer(String name) {
+        return timer(name, null, null);
+    }
+
+    // null bila nonaktif
+    public Timer timer(String name, String labelName, String labelValue) {
+        return enabled ? (Timer) child(name, true, labelName, labelValue) : null;
+    }
+
+    public Counter counter(String name) {
+        return counter(name, null, null);
+    }
+
+    public Counter counter(String name, String labelName, String labelValue) {
+        return enabled ? (Counter) child(name, false, labelName, labelValue) : null;
+    }
+
+    private Object child(String name, boolean timer, String labelName, String labelValue) {
+        Family family = families.computeIfAbsent(name, key -> new Family(timer, labelName));
+        if (family.timer != timer || !Objects.equals(family.labelName, labelName)) {
+            throw new IllegalArgumentException("Metrik " + name + " sudah terdaftar dengan jenis atau label lain.");
+        }
+        return family.children.computeIfAbsent(labelValue == null ? "" : labelValue,
+                key -> timer ? new Timer() : new Counter());
+    }
+
+    public void reset() {
+        families.clear();
+    }
+
+    public boolean isEmpty() {
+        return families.isEmpty();
+    }
+
+    // {"timers":[{"name":..,["<label>":..,]"count":..,"totalMs":..,"maxMs":..}],"counters":[{"name":..,"value":..}]}
+    public String toJson() {
+        StringBuilder timers = new StringBuilder(), counters = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                StringBuilder out = family.timer ? timers : counters;
+                if (out.length() > 0) out.append(',');
+                out.append("{\"name\":\"").append(escapeJson(entry.getKey())).append('"');
+                if (family.labelName != null) {
+                    out.append(",\"").append(escapeJson(family.labelName)).append("\":\"")
+                            .append(escapeJson(child.getKey())).append('"');
+                }
+                if (family.timer) {
+                    Timer timer = (Timer) child.getValue();
+                    out.append(",\"count\":").append(timer.getCount())
+                            .append(",\"totalMs\":").append(String.format(Locale.ROOT, "%.3f", timer.getTotalNanos() / 1e6))
+                            .append(",\"maxMs\":").append(String.format(Locale.ROOT, "%.3f", timer.getMaxNanos() / 1e6));
+                } else {
+                    out.append(",\"value\":").append(((Counter) child.getValue()).get());
+                }
+                out.append('}');
+            }
+        }
+        return "{\"timers\":[" + timers + "],\"counters\":[" + counters + "]}";
+    }
+
+    // Timer menjadi summary tanpa kuantil (_count, _sum dalam detik) ditambah gauge _max_seconds
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            String name = PROMETHEUS_PREFIX + entry.getKey();
+            if (family.timer) {
+                out.append("# TYPE ").append(name).append("_seconds summary\n");
+                for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                    Timer timer = (Timer) child.getValue();
+                    String labels = prometheusLabels(family.labelName, child.getKey());
+                    out.append(name).append("_seconds_count").append(labels).append(' ').append(timer.getCount()).append('\n');
+                    out.append(name).append("_seconds_sum").append(labels).append(' ').append(timer.getTotalNanos() / 1e9).append('\n');
+                }
+                out.append("# TYPE ").append(name).append("_max_seconds gauge\n");
+                for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                    out.append(name).append("_max_seconds").append(prometheusLabels(family.labelName, child.getKey()))
+                            .append(' ').append(((Timer) child.getValue()).getMaxNanos() / 1e9).append('\n');
+                }
+            } else {
+                out.append("# TYPE ").append(name).append("_total counter\n");
+                for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                    out.append(name).append("_total").append(prometheusLabels(family.labelName, child.getKey()))
+                            .append(' ').append(((Counter) child.getValue()).get()).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    // Format dari ekstensi: .prom / .txt = Prometheus, selain itu JSON
+    public void writeTo(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        String content = name.endsWith(".prom") || name.endsWith(".txt") ? toPrometheus() : toJson() + "\n";
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Baris tabel ringkas (nama, jumlah, total, maks) untuk OutputHandler.printTable
+    public String[][] toTableRows() {
+        List<String[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                String name = family.labelName == null ? entry.getKey() : entry.getKey() + " " + child.getKey();
+                if (family.timer) {
+                    Timer timer = (Timer) child.getValue();
+                    rows.add(new String[] {name, String.valueOf(timer.getCount()),
+                            String.format("%.1f ms", timer.getTotalNanos() / 1e6),
+                            String.format("%.1f ms", timer.getMaxNanos() / 1e6)});
+                } else {
+                    rows.add(new String[] {name, String.valueOf(((Counter) child.getValue()).get()), "-", "-"});
+                }
+            }
+        }
+        return rows.toArray(new String[0][]);
+    }
+
+    private static String prometheusLabels(String labelName, String labelValue) {
+        if (labelName == null) return "";
+        String escaped = labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{" + labelName + "=\"" + escaped + "\"}";
+    }
+
+    private static String escapeJson(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
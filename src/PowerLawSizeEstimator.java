@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * size ≈ c * runs^k
+ * k ditaksir dari dua sampel kalibrasi terdekat (dalam skala log), atau memakai nilai awal
+ * bila baru ada satu sampel. PNG ≈ linear terhadap jumlah run, JPEG jauh lebih landai.
+ */
+public class PowerLawSizeEstimator implements SizeEstimator {
+    private static final double MIN_EXPONENT = 0.2;
+    private static final double MAX_EXPONENT = 1.5;
+
+    private final double priorExponent;
+    private final List<double[]> samples = new ArrayList<>();
+
+    public PowerLawSizeEstimator(double priorExponent) {
+        this.priorExponent = priorExponent;
+    }
+
+    public static PowerLawSizeEstimator forFormat(String imageFormat) {
+        String format = imageFormat.toLowerCase();
+        boolean lossless = format.equals("png") || format.equals("gif") || format.equals("bmp");
+        return new PowerLawSizeEstimator(lossless ? 1.0 : 0.5);
+    }
+
+    @Override
+    public void calibrate(TreeStatistics statistics, long actualSize) {
+        samples.add(new double[]{Math.log(Math.max(1, statistics.getColorRuns())), Math.log(Math.max(1, actualSize))});
+    }
+
+    @Override
+    public boolean isCalibrated() {
+        return !samples.isEmpty();
+    }
+
+    @Override
+    public long estimateSize(TreeStatistics statistics) {
+        if (samples.isEmpty()) {
+            throw new IllegalStateException("Estimator belum dikalibrasi.");
+        }
+        double logRuns = Math.log(Math.max(1, statistics.getColorRuns()));
+
+        double[] nearest = null, second = null;
+        for (double[] sample : samples) {
+            if (nearest == null || Math.abs(sample[0] - logRuns) < Math.abs(nearest[0] - logRuns)) {
+                second = nearest;
+                nearest = sample;
+            } else if (second == null || Math.abs(sample[0] - logRuns) < Math.abs(second[0] - logRuns)) {
+                second = sample;
+            }
+        }
+
+        double exponent = priorExponent;
+        if (second != null && Math.abs(second[0] - nearest[0]) > 1e-3) {
+            exponent = (second[1] - nearest[1]) / (second[0] - nearest[0]);
+            exponent = Math.max(MIN_EXPONENT, Math.min(MAX_EXPONENT, exponent));
+        }
+        return Math.round(Math.exp(nearest[1] + exponent * (logRuns - nearest[0])));
+    }
+}
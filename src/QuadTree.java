@@ -1,12 +1,28 @@
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 public class QuadTree {
+    public static final int DEFAULT_PARALLEL_CUTOFF = 64 * 64;
 
-    private QuadTreeNode root;
+    private final QuadTreeNodeArena arena = new QuadTreeNodeArena();
+    private final int root;
+    private final int width, height;
     private RGBMatrix rgbMatrix;
     private ErrorMetric errorMetric;
     private double threshold;
     private int minBlockSize;
     private int nodeCount, maxDepth;
+    private boolean parallel;
+    private int parallelCutoff = DEFAULT_PARALLEL_CUTOFF;
+    private boolean fullTree;
+    // null bila metrics nonaktif; diambil sekali per build agar calculateError hanya memeriksa null
+    private PipelineMetrics.Timer errorTimer;
+    // null = selalu error eksak
+    private SampledSplit sampledSplit;
+    // Penghitung build terakhir dengan sampledSplit; null bila build terakhir tidak memakai sampel
+    private SampledSplit.Statistics sampledStatistics;
 
     public QuadTree(RGBMatrix rgbMatrix, ErrorMetric errorMetric, double threshold, int minBlockSize) {
         this.rgbMatrix = rgbMatrix;
@@ -15,92 +31,297 @@ public class QuadTree {
         this.minBlockSize = minBlockSize;
         this.nodeCount = 0;
         this.maxDepth = 0;
+        this.width = rgbMatrix.getWidth();
+        this.height = rgbMatrix.getHeight();
 
-        this.root = new QuadTreeNode(0, 0, rgbMatrix.getWidth(), rgbMatrix.getHeight());
+        this.root = arena.allocate(0, 0, width, height);
         this.nodeCount++;
     }
 
+    // Pohon tanpa piksel sumber (mis. dibaca dari file .qtree); hanya bisa dirender dan di-cut
+    QuadTree(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.root = arena.allocate(0, 0, width, height);
+        this.nodeCount = 1;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public void setParallel(boolean parallel, int parallelCutoff) {
+        if (parallelCutoff <= 0) {
+            throw new IllegalArgumentException("Parallel cutoff harus positif.");
+        }
+        this.parallel = parallel;
+        this.parallelCutoff = parallelCutoff;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    // Keputusan split blok besar dari sampel piksel (lihat SampledSplit); tidak berlaku untuk buildFullTree(),
+    // yang membutuhkan error eksak setiap node untuk cut()
+    public void setSampledSplit(SampledSplit sampledSplit) {
+        this.sampledSplit = sampledSplit;
+    }
+
+    public SampledSplit getSampledSplit() {
+        return sampledSplit;
+    }
+
+    public SampledSplit.Statistics getSampledSplitStatistics() {
+        return sampledStatistics;
+    }
+
+    // Matriks sumber tidak diubah; hasil kompresi diambil lewat render()
     public void buildTree() {
-        buildTreeRecursive(root, 0);
-        applyColorToMatrix();
+        buildNodes();
+    }
+
+    // Membangun pohon penuh hingga minBlockSize (threshold diabaikan) dan menyimpan error setiap node,
+    // sehingga pohon untuk threshold apa pun bisa diperoleh lewat cut() tanpa membaca piksel lagi.
+    public void buildFullTree() {
+        fullTree = true;
+        buildNodes();
     }
 
-    private void buildTreeRecursive(QuadTreeNode node, int depth) {
+    public boolean isFullTree() {
+        return fullTree;
+    }
+
+    private void buildNodes() {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        errorTimer = metrics.timer("calculate_error", "metric", errorMetric.getClass().getSimpleName());
+        long start = metrics.start();
+        sampledStatistics = sampledSplit != null && !fullTree ? new SampledSplit.Statistics() : null;
+        runBuildTask();
+        if (sampledStatistics != null && sampledSplit.isExceeded(sampledStatistics)) {
+            // Terlalu banyak keputusan sampel yang diaudit salah: pohon dibangun ulang dengan error eksak
+            sampledStatistics.markRebuilt();
+            arena.truncate(root + 1);
+            arena.setFirstChild(root, 0);
+            nodeCount = 1;
+            maxDepth = 0;
+            runBuildTask();
+        }
+        metrics.stop("tree_build", start);
+        if (sampledStatistics != null) {
+            metrics.increment("split_sampled", sampledStatistics.getSampledDecisions());
+            metrics.increment("split_exact_fallback", sampledStatistics.getExactFallbacks());
+            metrics.increment("split_audit_mismatch", sampledStatistics.getAuditMismatches());
+            if (sampledStatistics.isRebuilt()) metrics.increment("split_exact_rebuild", 1);
+        }
+    }
+
+    private void runBuildTask() {
+        BuildTask task = new BuildTask(root, 0);
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.buildTreeRecursive(root, 0);
+        }
+        nodeCount += task.subtreeNodeCount;
+        maxDepth = Math.max(maxDepth, task.subtreeMaxDepth);
+    }
+
+    public QuadTree cut(double threshold) {
+        return cut(threshold, minBlockSize);
+    }
+
+    // Pohon penuh hingga minBlockSize kecil sekaligus memuat pohon untuk setiap minBlockSize yang lebih besar:
+    // node hanya dipecah bila luasnya >= minBlockSize, sama seperti shouldSplit()
+    public QuadTree cut(double threshold, int minBlockSize) {
+        if (!fullTree) {
+            throw new IllegalStateException("cut() membutuhkan pohon dari buildFullTree().");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold untuk cut() tidak boleh negatif.");
+        }
+        QuadTree result = rgbMatrix != null
+                ? new QuadTree(rgbMatrix, errorMetric, threshold, minBlockSize)
+                : new QuadTree(width, height);
+        result.minBlockSize = minBlockSize;
+        result.cutRecursive(arena, root, result.root, threshold, 0, new QuadTreeNodeArena.Cursor());
+        return result;
+    }
+
+    private void cutRecursive(QuadTreeNodeArena sourceArena, int source, int target, double threshold, int depth,
+                              QuadTreeNodeArena.Cursor cursor) {
         maxDepth = Math.max(maxDepth, depth);
+        arena.setColor(target, sourceArena.getColor(source));
+        arena.setError(target, sourceArena.getError(source));
 
-        node.calculateAverageColor(rgbMatrix);
-        
-        if (shouldSplit(node)) {
-            node.split();
+        if (!sourceArena.isLeaf(source) && sourceArena.getError(source) > threshold
+                && sourceArena.getWidth(source) * sourceArena.getHeight(source) >= minBlockSize) {
+            int targetChild = arena.split(target, cursor);
+            int sourceChild = sourceArena.getFirstChild(source);
 
-            buildTreeRecursive(node.getTopLeft(), depth + 1);
-            buildTreeRecursive(node.getTopRight(), depth + 1);
-            buildTreeRecursive(node.getBottomLeft(), depth + 1);
-            buildTreeRecursive(node.getBottomRight(), depth + 1);
+            for (int i = 0; i < 4; i++) {
+                cutRecursive(sourceArena, sourceChild + i, targetChild + i, threshold, depth + 1, cursor);
+            }
 
             nodeCount += 4;
         }
     }
 
-    private boolean shouldSplit(QuadTreeNode node) {
-        if (node.getWidth() * node.getHeight() < minBlockSize) return false;
+    // Setiap task mencatat nodeCount dan maxDepth subtree-nya sendiri, lalu digabung oleh parent setelah join
+    private class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int node;
+        private final int depth;
+        private final QuadTreeNodeArena.Cursor cursor = new QuadTreeNodeArena.Cursor();
+        private int subtreeNodeCount, subtreeMaxDepth;
+
+        BuildTask(int node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            subtreeMaxDepth = depth;
+            calculateAverageColor(node);
 
-        double error = errorMetric.calculateError(rgbMatrix, node.getX(), node.getY(), node.getWidth(), node.getHeight());
+            if (!shouldSplit(node)) return;
+            int child = arena.split(node, cursor);
+            subtreeNodeCount += 4;
 
-        return error > threshold;
+            if (arena.getWidth(node) * arena.getHeight(node) < parallelCutoff) {
+                for (int i = 0; i < 4; i++) {
+                    buildTreeRecursive(child + i, depth + 1);
+                }
+                return;
+            }
+
+            BuildTask[] children = {
+                new BuildTask(child, depth + 1),
+                new BuildTask(child + 1, depth + 1),
+                new BuildTask(child + 2, depth + 1),
+                new BuildTask(child + 3, depth + 1)
+            };
+            invokeAll(children);
+            for (BuildTask task : children) {
+                subtreeNodeCount += task.subtreeNodeCount;
+                subtreeMaxDepth = Math.max(subtreeMaxDepth, task.subtreeMaxDepth);
+            }
+        }
+
+        private void buildTreeRecursive(int node, int depth) {
+            subtreeMaxDepth = Math.max(subtreeMaxDepth, depth);
+
+            calculateAverageColor(node);
+
+            if (shouldSplit(node)) {
+                int child = arena.split(node, cursor);
+
+                for (int i = 0; i < 4; i++) {
+                    buildTreeRecursive(child + i, depth + 1);
+                }
+
+                subtreeNodeCount += 4;
+            }
+        }
     }
 
-    public void buildTree(double currentThreshold, BufferedImage image) {
-        buildTreeRecursive(root, 0, currentThreshold, image);
-        applyColorToMatrix();
+    private void calculateAverageColor(int node) {
+        arena.setColor(node, QuadTreeNode.calculateAverageColor(rgbMatrix,
+                arena.getX(node), arena.getY(node), arena.getWidth(node), arena.getHeight(node)));
     }
-    
-    private void buildTreeRecursive(QuadTreeNode node, int depth, double currentThreshold, BufferedImage image) {
-        maxDepth = Math.max(maxDepth, depth);
-    
-        node.calculateAverageColor(rgbMatrix);
-    
-        if (shouldSplit(node, currentThreshold, image)) {
-            node.split();
-    
-            buildTreeRecursive(node.getTopLeft(), depth + 1, currentThreshold, image);
-            buildTreeRecursive(node.getTopRight(), depth + 1, currentThreshold, image);
-            buildTreeRecursive(node.getBottomLeft(), depth + 1, currentThreshold, image);
-            buildTreeRecursive(node.getBottomRight(), depth + 1, currentThreshold, image);
-    
-            nodeCount += 4;
-        } else {
-            applyColorRecursive(node);
+
+    private boolean shouldSplit(int node) {
+        int width = arena.getWidth(node), height = arena.getHeight(node);
+        if (width * height < minBlockSize) return false;
+
+        int x = arena.getX(node), y = arena.getY(node);
+        // Pada mode sampel, error node berisi perkiraan bila keputusan diambil dari sampel
+        SampledSplit.Statistics statistics = sampledStatistics;
+        double error = statistics != null && !statistics.isRebuilt()
+                ? sampledSplit.estimate(errorMetric, rgbMatrix, x, y, width, height, threshold, statistics)
+                : Double.NaN;
+        if (Double.isNaN(error)) error = calculateError(x, y, width, height);
+        arena.setError(node, error);
+
+        // Pada pohon penuh, node dipecah selama masih ada threshold >= 0 yang akan memecahnya
+        return error > (fullTree ? 0.0 : threshold);
+    }
+
+    // Error blok tidak bergantung pada threshold, jadi bisa dipakai ulang antar-build lewat cache matriks
+    private double calculateError(int x, int y, int width, int height) {
+        BlockStatisticsCache cache = rgbMatrix.getBlockStatisticsCache();
+        if (cache == null) {
+            return measureError(x, y, width, height);
+        }
+        int kind = BlockStatisticsCache.kindOf(errorMetric);
+        double error = cache.get(kind, x, y, width, height);
+        if (Double.isNaN(error)) {
+            error = measureError(x, y, width, height);
+            cache.put(kind, x, y, width, height, error);
+        }
+        return error;
+    }
+
+    // Hanya panggilan metrik yang sebenarnya (bukan cache hit) yang dihitung timer
+    private double measureError(int x, int y, int width, int height) {
+        PipelineMetrics.Timer timer = errorTimer;
+        if (timer == null) {
+            return errorMetric.calculateError(rgbMatrix, x, y, width, height);
         }
+        long start = System.nanoTime();
+        double error = errorMetric.calculateError(rgbMatrix, x, y, width, height);
+        timer.recordSince(start);
+        return error;
     }
-    
-    private boolean shouldSplit(QuadTreeNode node, double currentThreshold, BufferedImage image) {
-        if (node.getWidth() * node.getHeight() < minBlockSize) return false;
-    
-        double error = errorMetric.calculateError(rgbMatrix, node.getX(), node.getY(), node.getWidth(), node.getHeight());
-    
-        return error > currentThreshold;
+
+    public void buildTree(double currentThreshold, BufferedImage image) {
+        double previousThreshold = threshold;
+        threshold = currentThreshold;
+        buildTree();
+        threshold = previousThreshold;
     }
-    
 
-    private void applyColorToMatrix() {
-        applyColorRecursive(root);
+    // Dipanggil QuadTreeCodec setelah node dibaca langsung ke arena
+    void finishDecoding(int nodeCount, int maxDepth, boolean fullTree) {
+        this.nodeCount = nodeCount;
+        this.maxDepth = maxDepth;
+        this.fullTree = fullTree;
     }
 
-    private void applyColorRecursive(QuadTreeNode node) {
-        if (node.isLeaf()) {
-            for (int y = node.getY(); y < node.getY() + node.getHeight(); y++) {
-                for (int x = node.getX(); x < node.getX() + node.getWidth(); x++) {
-                    if (x < rgbMatrix.getWidth() && y < rgbMatrix.getHeight()) {
-                        rgbMatrix.setPixel(x, y, node.getAverageColor().getRGB());
-                    }
-                }
+    public BufferedImage render() {
+        return renderAtDepth(Integer.MAX_VALUE);
+    }
+
+    // Node pada kedalaman maxDepth digambar dengan warna rata-ratanya walaupun masih punya anak
+    public BufferedImage renderAtDepth(int maxDepth) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        render(pixels, 0, width, maxDepth);
+        return image;
+    }
+
+    // Menulis warna leaf ke target dengan Arrays.fill per baris; piksel (x, y) berada di target[offset + y * stride + x]
+    public void render(int[] target, int offset, int stride, int maxDepth) {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        long start = metrics.start();
+        renderRecursive(root, target, offset, stride, 0, maxDepth);
+        metrics.stop("render", start);
+    }
+
+    private void renderRecursive(int node, int[] target, int offset, int stride, int depth, int maxDepth) {
+        if (arena.isLeaf(node) || depth >= maxDepth) {
+            int width = arena.getWidth(node);
+            int color = arena.getColor(node);
+            int start = offset + arena.getY(node) * stride + arena.getX(node);
+            for (int row = arena.getHeight(node); row > 0; row--, start += stride) {
+                Arrays.fill(target, start, start + width, color);
             }
-        } else {
-            applyColorRecursive(node.getTopLeft());
-            applyColorRecursive(node.getTopRight());
-            applyColorRecursive(node.getBottomLeft());
-            applyColorRecursive(node.getBottomRight());
+            return;
+        }
+        int child = arena.getFirstChild(node);
+        for (int i = 0; i < 4; i++) {
+            renderRecursive(child + i, target, offset, stride, depth + 1, maxDepth);
         }
     }
 
@@ -112,6 +333,15 @@ public class QuadTree {
         return maxDepth;
     }
 
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Matriks sumber (tidak diwarnai oleh buildTree); null untuk pohon yang dibaca dari file
     public RGBMatrix getRGBMatrix() {
         return this.rgbMatrix;
     }
@@ -120,12 +350,7 @@ public class QuadTree {
         if (node == null) return;
         
         if (currentDepth >= targetDepth || node.isLeaf()) {
-            for (int y = node.getY(); y < node.getY() + node.getHeight() && y < matrix.getHeight(); y++) {
-                for (int x = node.getX(); x < node.getX() + node.getWidth() && x < matrix.getWidth(); x++) {
-                    if (node.getAverageColor() == null) matrix.setPixel(x, y, 0);
-                    matrix.setPixel(x, y, node.getAverageColor().getRGB());
-                }
-            }
+            matrix.fillRect(node.getX(), node.getY(), node.getWidth(), node.getHeight(), node.getAverageColorRGB());
         } 
         else if (currentDepth < targetDepth && !node.isLeaf()) {
             applyColorsAtDepth(node.getTopLeft(), matrix, targetDepth, currentDepth + 1);
@@ -136,6 +361,14 @@ public class QuadTree {
 }
 
     public QuadTreeNode getRoot() {
-        return this.root;
+        return new QuadTreeNode(arena, root);
+    }
+
+    public QuadTreeNodeArena getArena() {
+        return arena;
+    }
+
+    int getRootIndex() {
+        return root;
     }
 }
@@ -0,0 +1,316 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Format file quadtree (.qtree) agar pohon bisa disimpan dan dirender ulang tanpa membangunnya lagi.
+ *
+ * Header 24 byte (big-endian, tidak pernah dikompresi):
+ *   "QTRE", versi (1), flag (1), 2 byte cadangan, width, height, nodeCount, maxDepth.
+ * Payload, dikompresi Deflate bila FLAG_DEFLATE:
+ *   1. bit split per node secara pre-order (1 = dipecah, MSB dulu, dipadding ke byte penuh),
+ *   2. warna RGB per leaf secara pre-order, disimpan sebagai selisih per kanal dari warna sebelumnya,
+ *   3. bila FLAG_FULL: warna juga untuk node internal, lalu error (double) setiap node pre-order,
+ *      sehingga pohon hasil buildFullTree() tetap bisa di-cut() setelah dibaca.
+ * Geometri node tidak disimpan karena selalu bisa diturunkan dari ukuran gambar dan urutan split.
+ * Encoder dan decoder membaca/menulis lewat channel NIO dengan buffer tetap, tanpa menampung seluruh file.
+ */
+public class QuadTreeCodec {
+    public static final String EXTENSION = ".qtree";
+    public static final int FLAG_DEFLATE = 1;
+    public static final int FLAG_FULL = 2;
+    private static final byte[] MAGIC = {'Q', 'T', 'R', 'E'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer compressed;
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private WritableByteChannel out;
+    private ReadableByteChannel in;
+    private long bytesWritten;
+    private int bits, bitCount;
+    private int previousColor;
+    private int nodesRead, nodeLimit, maxDepthRead;
+
+    private QuadTreeCodec(int flags, boolean writing) {
+        boolean deflate = (flags & FLAG_DEFLATE) != 0;
+        this.compressed = deflate ? ByteBuffer.allocate(BUFFER_SIZE) : null;
+        this.deflater = deflate && writing ? new Deflater(Deflater.BEST_COMPRESSION) : null;
+        this.inflater = deflate && !writing ? new Inflater() : null;
+        if (!writing) buffer.limit(0);
+    }
+
+    public static long write(QuadTree quadTree, Path path, boolean deflate) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return write(quadTree, channel, deflate);
+        }
+    }
+
+    // Pohon hasil buildFullTree() otomatis ditulis lengkap (FLAG_FULL). Mengembalikan jumlah byte yang ditulis.
+    public static long write(QuadTree quadTree, WritableByteChannel channel, boolean deflate) throws IOException {
+        int flags = (deflate ? FLAG_DEFLATE : 0) | (quadTree.isFullTree() ? FLAG_FULL : 0);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).put((byte) VERSION).put((byte) flags).putShort((short) 0);
+        header.putInt(quadTree.getWidth()).putInt(quadTree.getHeight());
+        header.putInt(quadTree.getNodeCount()).putInt(quadTree.getMaxDepth());
+        header.flip();
+        writeFully(channel, header);
+
+        QuadTreeCodec codec = new QuadTreeCodec(flags, true);
+        codec.out = channel;
+        codec.bytesWritten = HEADER_SIZE;
+        try {
+            QuadTreeNodeArena arena = quadTree.getArena();
+            int root = quadTree.getRootIndex();
+            boolean full = (flags & FLAG_FULL) != 0;
+            codec.writeSplits(arena, root);
+            codec.flushBits();
+            codec.writeColors(arena, root, full);
+            if (full) codec.writeErrors(arena, root);
+            codec.finish();
+        } finally {
+            if (codec.deflater != null) codec.deflater.end();
+        }
+        return codec.bytesWritten;
+    }
+
+    public static QuadTree read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    // Node dibaca langsung ke arena QuadTree baru (tanpa matriks piksel); hasilnya diambil lewat render()
+    public static QuadTree read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header);
+        header.flip();
+        for (byte b : MAGIC) {
+            if (header.get() != b) throw new IOException("Bukan file quadtree (.qtree).");
+        }
+        int version = header.get();
+        if (version != VERSION) throw new IOException("Versi file quadtree tidak didukung: " + version);
+        int flags = header.get();
+        header.getShort();
+        int width = header.getInt(), height = header.getInt();
+        int nodeCount = header.getInt(), maxDepth = header.getInt();
+        if (width <= 0 || height <= 0 || nodeCount <= 0 || (nodeCount - 1) % 4 != 0 || maxDepth < 0) {
+            throw new IOException("Header file quadtree rusak.");
+        }
+
+        QuadTree quadTree = new QuadTree(width, height);
+        QuadTreeCodec codec = new QuadTreeCodec(flags, false);
+        codec.in = channel;
+        codec.nodeLimit = nodeCount;
+        try {
+            QuadTreeNodeArena arena = quadTree.getArena();
+            int root = quadTree.getRootIndex();
+            boolean full = (flags & FLAG_FULL) != 0;
+            codec.readSplits(arena, root, 0, new QuadTreeNodeArena.Cursor());
+            if (codec.nodesRead != nodeCount || codec.maxDepthRead != maxDepth) {
+                throw new IOException("File quadtree rusak: jumlah node tidak sesuai header.");
+            }
+            codec.readColors(arena, root, full);
+            if (full) codec.readErrors(arena, root);
+        } finally {
+            if (codec.inflater != null) codec.inflater.end();
+        }
+        quadTree.finishDecoding(nodeCount, maxDepth, (flags & FLAG_FULL) != 0);
+        return quadTree;
+    }
+
+    private void writeSplits(QuadTreeNodeArena arena, int node) throws IOException {
+        boolean leaf = arena.isLeaf(node);
+        bits = (bits << 1) | (leaf ? 0 : 1);
+        if (++bitCount == 8) flushBits();
+        if (leaf) return;
+        int child = arena.getFirstChild(node);
+        for (int i = 0; i < 4; i++) {
+            writeSplits(arena, child + i);
+        }
+    }
+
+    private void flushBits() throws IOException {
+        if (bitCount == 0) return;
+        put(bits << (8 - bitCount));
+        bits = 0;
+        bitCount = 0;
+    }
+
+    private void writeColors(QuadTreeNodeArena arena, int node, boolean full) throws IOException {
+        boolean leaf = arena.isLeaf(node);
+        if (leaf || full) {
+            int color = arena.getColor(node);
+            put((color >> 16) - (previousColor >> 16));
+            put(((color >> 8) & 0xFF) - ((previousColor >> 8) & 0xFF));
+            put((color & 0xFF) - (previousColor & 0xFF));
+            previousColor = color;
+        }
+        if (leaf) return;
+        int child = arena.getFirstChild(node);
+        for (int i = 0; i < 4; i++) {
+            writeColors(arena, child + i, full);
+        }
+    }
+
+    private void writeErrors(QuadTreeNodeArena arena, int node) throws IOException {
+        long error = Double.doubleToRawLongBits(arena.getError(node));
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            put((int) (error >>> shift));
+        }
+        if (arena.isLeaf(node)) return;
+        int child = arena.getFirstChild(node);
+        for (int i = 0; i < 4; i++) {
+            writeErrors(arena, child + i);
+        }
+    }
+
+    private void readSplits(QuadTreeNodeArena arena, int node, int depth, QuadTreeNodeArena.Cursor cursor)
+            throws IOException {
+        if (++nodesRead > nodeLimit) {
+            throw new IOException("File quadtree rusak: jumlah node melebihi header.");
+        }
+        maxDepthRead = Math.max(maxDepthRead, depth);
+        if (bitCount == 0) {
+            bits = get();
+            bitCount = 8;
+        }
+        bitCount--;
+        if (((bits >> bitCount) & 1) == 0) return;
+
+        int child = arena.split(node, cursor);
+        for (int i = 0; i < 4; i++) {
+            readSplits(arena, child + i, depth + 1, cursor);
+        }
+    }
+
+    private void readColors(QuadTreeNodeArena arena, int node, boolean full) throws IOException {
+        boolean leaf = arena.isLeaf(node);
+        if (leaf || full) {
+            int r = ((previousColor >> 16) + get()) & 0xFF;
+            int g = (((previousColor >> 8) & 0xFF) + get()) & 0xFF;
+            int b = ((previousColor & 0xFF) + get()) & 0xFF;
+            previousColor = (r << 16) | (g << 8) | b;
+            arena.setColor(node, previousColor);
+        }
+        if (leaf) return;
+        int child = arena.getFirstChild(node);
+        for (int i = 0; i < 4; i++) {
+            readColors(arena, child + i, full);
+        }
+        if (!full) arena.setColor(node, averageChildColor(arena, child));
+    }
+
+    // Warna node internal tidak disimpan tanpa FLAG_FULL; didekati dengan rata-rata anak berbobot luas
+    // agar renderAtDepth() tetap masuk akal untuk pohon yang dibaca dari file
+    private static int averageChildColor(QuadTreeNodeArena arena, int child) {
+        long r = 0, g = 0, b = 0, area = 0;
+        for (int i = child; i < child + 4; i++) {
+            long childArea = (long) arena.getWidth(i) * arena.getHeight(i);
+            int color = arena.getColor(i);
+            r += childArea * ((color >> 16) & 0xFF);
+            g += childArea * ((color >> 8) & 0xFF);
+            b += childArea * (color & 0xFF);
+            area += childArea;
+        }
+        if (area == 0) return 0;
+        return (int) (r / area) << 16 | (int) (g / area) << 8 | (int) (b / area);
+    }
+
+    private void readErrors(QuadTreeNodeArena arena, int node) throws IOException {
+        long error = 0;
+        for (int i = 0; i < 8; i++) {
+            error = (error << 8) | get();
+        }
+        arena.setError(node, Double.longBitsToDouble(error));
+        if (arena.isLeaf(node)) return;
+        int child = arena.getFirstChild(node);
+        for (int i = 0; i < 4; i++) {
+            readErrors(arena, child + i);
+        }
+    }
+
+    private void put(int value) throws IOException {
+        if (!buffer.hasRemaining()) drain(false);
+        buffer.put((byte) value);
+    }
+
+    private void finish() throws IOException {
+        drain(true);
+    }
+
+    // Mengosongkan buffer ke channel, lewat Deflater bila aktif
+    private void drain(boolean last) throws IOException {
+        buffer.flip();
+        if (deflater == null) {
+            bytesWritten += buffer.remaining();
+            writeFully(out, buffer);
+        } else {
+            deflater.setInput(buffer);
+            if (last) deflater.finish();
+            while (last ? !deflater.finished() : !deflater.needsInput()) {
+                compressed.clear();
+                deflater.deflate(compressed);
+                compressed.flip();
+                bytesWritten += compressed.remaining();
+                writeFully(out, compressed);
+            }
+        }
+        buffer.clear();
+    }
+
+    private int get() throws IOException {
+        if (!buffer.hasRemaining()) fill();
+        return buffer.get() & 0xFF;
+    }
+
+    private void fill() throws IOException {
+        buffer.clear();
+        if (inflater == null) {
+            while (buffer.position() == 0) {
+                if (in.read(buffer) < 0) throw new EOFException("File quadtree terpotong.");
+            }
+        } else {
+            try {
+                while (buffer.position() == 0) {
+                    if (inflater.finished()) throw new EOFException("File quadtree terpotong.");
+                    if (inflater.needsInput()) {
+                        compressed.clear();
+                        if (in.read(compressed) < 0) throw new EOFException("File quadtree terpotong.");
+                        compressed.flip();
+                        inflater.setInput(compressed);
+                    }
+                    inflater.inflate(buffer);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Data quadtree terkompresi rusak: " + e.getMessage());
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer target) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target) < 0) throw new EOFException("File quadtree terpotong.");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Animasi GIF proses pembagian quadtree per kedalaman, dibuat inkremental dalam satu lintasan pohon.
+ * Satu buffer frame dipakai ulang: dari kedalaman a ke b hanya subtree node yang dipecah di kedalaman a
+ * (frontier) yang digambar ulang, dan frame berikutnya ditulis sebagai sub-gambar selisih
+ * (bounding box area yang berubah) dengan offset dan disposal doNotDispose.
+ * Setiap frame berindeks (TYPE_BYTE_INDEXED) dengan palet dari warna leaf, lihat LeafPalette.
+ */
+public class QuadTreeGifRenderer {
+    public static final int MAX_FRAMES = 15;
+
+    private final QuadTree quadTree;
+    private final QuadTreeNodeArena arena;
+    private final int width, height;
+    private final int[] pixels;
+    private final LeafPalette palette = new LeafPalette();
+    private int[] frontier = new int[16], nextFrontier = new int[16];
+    private int frontierSize, nextFrontierSize;
+    private int minX, minY, maxX, maxY;
+
+    public QuadTreeGifRenderer(QuadTree quadTree) {
+        this.quadTree = quadTree;
+        this.arena = quadTree.getArena();
+        this.width = quadTree.getWidth();
+        this.height = quadTree.getHeight();
+        this.pixels = new int[width * height];
+    }
+
+    // Kedalaman setiap frame: maksimal MAX_FRAMES, tersebar rata dari 0 sampai maxDepth
+    public static int[] frameDepths(int maxDepth) {
+        int frameCount = Math.min(maxDepth + 1, MAX_FRAMES);
+        double depthStep = maxDepth / (double) (frameCount - 1);
+        int[] depths = new int[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            depths[i] = (int) Math.round(i * depthStep);
+        }
+        return depths;
+    }
+
+    // progress menerima persentase (0-100) setelah setiap frame ditulis
+    public void write(MemoryEfficientGifWriter writer, int frameDelay, IntConsumer progress) throws IOException {
+        int[] depths = frameDepths(quadTree.getMaxDepth());
+        PipelineMetrics metrics = PipelineMetrics.get();
+
+        frontier[0] = quadTree.getRootIndex();
+        frontierSize = 1;
+        int previousDepth = 0;
+        for (int i = 0; i < depths.length; i++) {
+            long start = metrics.start();
+            minX = width;
+            minY = height;
+            maxX = 0;
+            maxY = 0;
+            nextFrontierSize = 0;
+            for (int j = 0; j < frontierSize; j++) {
+                paint(frontier[j], previousDepth, depths[i]);
+            }
+            int[] swap = frontier;
+            frontier = nextFrontier;
+            nextFrontier = swap;
+            frontierSize = nextFrontierSize;
+            previousDepth = depths[i];
+
+            // Buffer frame terus diubah, jadi yang diserahkan ke writer (bisa async) selalu salinan berindeks
+            BufferedImage frame;
+            int left = 0, top = 0;
+            if (i == 0) {
+                frame = crop(0, 0, width, height);
+            } else if (minX >= maxX || minY >= maxY) {
+                // Tidak ada yang berubah: frame 1x1 agar jumlah dan jeda frame tetap sama
+                frame = crop(0, 0, 1, 1);
+            } else {
+                frame = crop(minX, minY, maxX - minX, maxY - minY);
+                left = minX;
+                top = minY;
+            }
+            metrics.stop("gif_frame", start);
+            metrics.increment("gif_frames", 1);
+            writer.writeFrame(frame, left, top, frameDelay);
+            progress.accept((i + 1) * 100 / depths.length);
+        }
+    }
+
+    // Menggambar node sampai kedalaman targetDepth; node yang masih punya anak di targetDepth
+    // menjadi frontier untuk frame berikutnya
+    private void paint(int node, int depth, int targetDepth) {
+        if (!arena.isLeaf(node) && depth < targetDepth) {
+            int child = arena.getFirstChild(node);
+            for (int i = 0; i < 4; i++) {
+                paint(child + i, depth + 1, targetDepth);
+            }
+            return;
+        }
+
+        int x = arena.getX(node), y = arena.getY(node);
+        int nodeWidth = arena.getWidth(node), nodeHeight = arena.getHeight(node);
+        int color = arena.getColor(node);
+        for (int row = 0, start = y * width + x; row < nodeHeight; row++, start += width) {
+            Arrays.fill(pixels, start, start + nodeWidth, color);
+        }
+        if (nodeWidth > 0 && nodeHeight > 0) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x + nodeWidth);
+            maxY = Math.max(maxY, y + nodeHeight);
+        }
+
+        if (!arena.isLeaf(node)) {
+            if (nextFrontierSize == nextFrontier.length) {
+                nextFrontier = Arrays.copyOf(nextFrontier, nextFrontierSize * 2);
+            }
+            nextFrontier[nextFrontierSize++] = node;
+        }
+    }
+
+    // Sub-gambar berindeks dengan palet dari warna leaf di area tersebut
+    private BufferedImage crop(int x, int y, int cropWidth, int cropHeight) {
+        return palette.toIndexed(pixels, y * width + x, width, cropWidth, cropHeight);
+    }
+}
@@ -1,84 +1,140 @@
+// View ringan atas satu node di QuadTreeNodeArena; data node sendiri disimpan di array arena
 public class QuadTreeNode {
-    private int x, y;
-    private int width, height; 
-    private Pixel averageColor; 
-    private QuadTreeNode topLeft, topRight, bottomLeft, bottomRight;
-    private boolean isLeaf;
+    private static final int STANDALONE_CHUNK_BITS = 2;
+
+    // Tidak final: node yang dipasang sebagai anak node lain dipindah ke slot anak di arena induknya
+    private QuadTreeNodeArena arena;
+    private int index;
 
     public QuadTreeNode(int x, int y, int width, int height) {
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-        this.averageColor = new Pixel(0, 0, 0);
-        this.topLeft = null;
-        this.topRight = null;
-        this.bottomLeft = null;
-        this.bottomRight = null;
-        this.isLeaf = true;
+        this.arena = new QuadTreeNodeArena(STANDALONE_CHUNK_BITS);
+        this.index = arena.allocate(x, y, width, height);
+    }
+
+    QuadTreeNode(QuadTreeNodeArena arena, int index) {
+        this.arena = arena;
+        this.index = index;
     }
 
     public void calculateAverageColor(RGBMatrix rgbMatrix) {
-        int totalR = 0, totalG = 0, totalB = 0, cnt = 0;
-        for (int y = this.y; y < this.y + this.height; y++) {
-            for (int x = this.x; x < this.x + this.width; x++) {
-                Pixel col = rgbMatrix.getPixel(x, y);
-                totalR += col.getR();
-                totalG += col.getG();
-                totalB += col.getB();
-                cnt++;
-            }
+        arena.setColor(index, calculateAverageColor(rgbMatrix, getX(), getY(), getWidth(), getHeight()));
+    }
+
+    public static int calculateAverageColor(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
+        IntegralImage integral = rgbMatrix.getIntegralImage();
+        if (integral != null) {
+            long cnt = integral.getCount(x, y, width, height);
+            if (cnt == 0) return 0;
+            int r = (int) (integral.getSum(0, x, y, width, height) / cnt);
+            int g = (int) (integral.getSum(1, x, y, width, height) / cnt);
+            int b = (int) (integral.getSum(2, x, y, width, height) / cnt);
+            return (r << 16) | (g << 8) | b;
         }
-        if (cnt > 0) {
-            this.averageColor = new Pixel(totalR / cnt, totalG / cnt, totalB / cnt);
-        } else {
-            this.averageColor = new Pixel(0, 0, 0);
+        // Rata-rata yang sama sering baru saja dihitung metrik (mis. MAD) untuk blok ini
+        if (rgbMatrix.getBlockStatisticsCache() != null) {
+            if (width <= 0 || height <= 0) return 0;
+            double[] average = rgbMatrix.calculateAverageRGB(x, y, width, height);
+            return ((int) average[0] << 16) | ((int) average[1] << 8) | (int) average[2];
         }
+        // Jumlah long: gambar di atas batas integral image bisa punya leaf > 2^31 / 255 piksel
+        long cnt = (long) Math.max(0, Math.min(x + width, rgbMatrix.getWidth()) - Math.max(x, 0))
+                * Math.max(0, Math.min(y + height, rgbMatrix.getHeight()) - Math.max(y, 0));
+        if (cnt == 0) return 0;
+        long[] sums = new long[ChannelKernels.SUMS];
+        ChannelKernels.sums(rgbMatrix, x, y, width, height, sums);
+        return (int) (sums[0] / cnt) << 16 | (int) (sums[1] / cnt) << 8 | (int) (sums[2] / cnt);
     }
 
     public boolean isLeaf() {
-        return isLeaf;
+        return arena.isLeaf(index);
     }
 
     public void split() {
-        int halfWidth = this.width / 2;
-        int halfHeight = this.height / 2;
-        int residualWidth = this.width - halfWidth;
-        int residualHeight = this.height - halfHeight;
-        this.topLeft = new QuadTreeNode(this.x, this.y, halfWidth, halfHeight);
-        this.topRight = new QuadTreeNode(this.x + halfWidth, this.y, residualWidth, halfHeight);
-        this.bottomLeft = new QuadTreeNode(this.x, this.y + halfHeight, halfWidth, residualHeight);
-        this.bottomRight = new QuadTreeNode(this.x + halfWidth, this.y + halfHeight, residualWidth, residualHeight);
-
-        this.isLeaf = false;
+        arena.split(index);
     }
 
-    public int getX() { return x; }
-    public int getY() { return y; }
-    public int getWidth() { return width; }
-    public int getHeight() { return height; }
-    public Pixel getAverageColor() { return averageColor; }
-    public QuadTreeNode getTopLeft() { return topLeft; }
-    public QuadTreeNode getTopRight() { return topRight; }
-    public QuadTreeNode getBottomLeft() { return bottomLeft; }
-    public QuadTreeNode getBottomRight() { return bottomRight; }
-
-    public void setX(int x) { this.x = x; }
-    public void setY(int y) { this.y = y; }
-    public void setWidth(int width) { this.width = width; }
-    public void setHeight(int height) { this.height = height; }
-    public void setAvgerageColor(Pixel averageColor) { this.averageColor = averageColor; }
-    public void setTopLeft(QuadTreeNode topLeft) { this.topLeft = topLeft; }
-    public void setTopRight(QuadTreeNode topRight) { this.topRight = topRight; }
-    public void setBottomLeft(QuadTreeNode bottomLeft) { this.bottomLeft = bottomLeft; }
-    public void setBottomRight(QuadTreeNode bottomRight) { this.bottomRight = bottomRight; }
+    int getIndex() { return index; }
+    QuadTreeNodeArena getArena() { return arena; }
+
+    public int getX() { return arena.getX(index); }
+    public int getY() { return arena.getY(index); }
+    public int getWidth() { return arena.getWidth(index); }
+    public int getHeight() { return arena.getHeight(index); }
+    public Pixel getAverageColor() {
+        int rgb = arena.getColor(index);
+        return new Pixel((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    }
+    public double getError() { return arena.getError(index); }
+    public QuadTreeNode getTopLeft() { return getChild(0); }
+    public QuadTreeNode getTopRight() { return getChild(1); }
+    public QuadTreeNode getBottomLeft() { return getChild(2); }
+    public QuadTreeNode getBottomRight() { return getChild(3); }
 
+    public void setX(int x) { arena.setX(index, x); }
+    public void setY(int y) { arena.setY(index, y); }
+    public void setWidth(int width) { arena.setWidth(index, width); }
+    public void setHeight(int height) { arena.setHeight(index, height); }
+    public void setAvgerageColor(Pixel averageColor) { arena.setColor(index, averageColor.getRGB()); }
+    public void setError(double error) { arena.setError(index, error); }
+    public void setTopLeft(QuadTreeNode topLeft) { setChild(0, topLeft); }
+    public void setTopRight(QuadTreeNode topRight) { setChild(1, topRight); }
+    public void setBottomLeft(QuadTreeNode bottomLeft) { setChild(2, bottomLeft); }
+    public void setBottomRight(QuadTreeNode bottomRight) { setChild(3, bottomRight); }
 
     public int getAverageColorRGB() {
-        return (averageColor.getRGB());
+        return arena.getColor(index);
     }
 
     public void setAvgerageColorRGB(int rgb) {
-        averageColor.setRGB(rgb);
+        arena.setColor(index, rgb);
+    }
+
+    private QuadTreeNode getChild(int position) {
+        if (arena.isLeaf(index)) return null;
+        return new QuadTreeNode(arena, arena.getFirstChild(index) + position);
+    }
+
+    // Anak di arena selalu berupa blok 4 node, jadi node ini dipecah dulu bila masih leaf. Node dari arena
+    // yang sama ditautkan tanpa menyalin subtree (cucu dipakai bersama); node dari arena lain (mis. dibuat lewat
+    // konstruktor publik) dipindahkan beserta subtree-nya. Dalam kedua kasus child lalu menunjuk ke slot anak,
+    // sehingga perubahan lewat child terlihat di pohon ini, seperti referensi anak pada QuadTreeNode lama
+    private void setChild(int position, QuadTreeNode child) {
+        if (child == null) {
+            throw new IllegalArgumentException("Anak node tidak boleh null.");
+        }
+        if (arena.isLeaf(index)) arena.split(index);
+        int slot = arena.getFirstChild(index) + position;
+        if (child.arena == arena) {
+            if (child.index != slot) {
+                copyRecord(arena, child.index, arena, slot);
+                arena.setFirstChild(slot, arena.getFirstChild(child.index));
+            }
+        } else {
+            copySubtree(child.arena, child.index, arena, slot);
+        }
+        child.arena = arena;
+        child.index = slot;
+    }
+
+    private static void copyRecord(QuadTreeNodeArena source, int sourceNode, QuadTreeNodeArena target, int targetNode) {
+        target.setX(targetNode, source.getX(sourceNode));
+        target.setY(targetNode, source.getY(sourceNode));
+        target.setWidth(targetNode, source.getWidth(sourceNode));
+        target.setHeight(targetNode, source.getHeight(sourceNode));
+        target.setColor(targetNode, source.getColor(sourceNode));
+        target.setError(targetNode, source.getError(sourceNode));
+    }
+
+    private static void copySubtree(QuadTreeNodeArena source, int sourceNode, QuadTreeNodeArena target, int targetNode) {
+        copyRecord(source, sourceNode, target, targetNode);
+        if (source.isLeaf(sourceNode)) {
+            target.setFirstChild(targetNode, 0);
+            return;
+        }
+        int targetFirst = target.split(targetNode);
+        int sourceFirst = source.getFirstChild(sourceNode);
+        for (int i = 0; i < 4; i++) {
+            copySubtree(source, sourceFirst + i, target, targetFirst + i);
+        }
     }
-}
\ No newline at end of file
+}
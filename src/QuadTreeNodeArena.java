@@ -0,0 +1,157 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Penyimpanan node quadtree dalam array primitif berpotongan (chunk), diindeks dengan int.
+ * Per node: x, y, width, height, warna rata-rata (RGB terpaket), indeks anak pertama
+ * (4 anak selalu berurutan; 0 = leaf karena root tidak pernah menjadi anak), dan error.
+ * Total 32 byte/node tanpa objek per node, sehingga pohon jutaan node tidak membebani GC.
+ *
+ * Alokasi aman dipanggil dari beberapa thread (build paralel): indeks diambil lewat AtomicInteger,
+ * chunk baru ditambahkan dengan mengganti direktori volatile yang selalu memuat semua chunk lama.
+ * Cursor mengambil blok indeks sekaligus sehingga split di dalam satu task tidak perlu operasi atomik.
+ */
+public class QuadTreeNodeArena {
+    public static final int DEFAULT_CHUNK_BITS = 12;
+    private static final int STRIDE = 6;
+    private static final int CURSOR_BLOCK = 64;
+    private static final int X = 0, Y = 1, WIDTH = 2, HEIGHT = 3, COLOR = 4, FIRST_CHILD = 5;
+
+    private final int chunkBits;
+    private final int chunkMask;
+    private volatile int[][] nodes = new int[0][];
+    private volatile double[][] errors = new double[0][];
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Blok indeks milik satu thread/task; tidak boleh dipakai bersamaan oleh beberapa thread
+    public static final class Cursor {
+        private int next, end;
+    }
+
+    public QuadTreeNodeArena() {
+        this(DEFAULT_CHUNK_BITS);
+    }
+
+    public QuadTreeNodeArena(int chunkBits) {
+        if (chunkBits < 0 || chunkBits > 24) {
+            throw new IllegalArgumentException("Ukuran chunk arena tidak valid.");
+        }
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+    }
+
+    public int allocate(int x, int y, int width, int height) {
+        int node = reserve(1);
+        init(node, x, y, width, height);
+        return node;
+    }
+
+    // Memecah node menjadi 4 anak (TL, TR, BL, BR) dengan pembagian yang sama seperti QuadTreeNode.split()
+    public int split(int node) {
+        return split(node, reserve(4));
+    }
+
+    public int split(int node, Cursor cursor) {
+        if (cursor.end - cursor.next < 4) {
+            cursor.next = reserve(CURSOR_BLOCK);
+            cursor.end = cursor.next + CURSOR_BLOCK;
+        }
+        int first = cursor.next;
+        cursor.next += 4;
+        return split(node, first);
+    }
+
+    private int split(int node, int first) {
+        int x = getX(node), y = getY(node);
+        int width = getWidth(node), height = getHeight(node);
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        int residualWidth = width - halfWidth;
+        int residualHeight = height - halfHeight;
+
+        init(first, x, y, halfWidth, halfHeight);
+        init(first + 1, x + halfWidth, y, residualWidth, halfHeight);
+        init(first + 2, x, y + halfHeight, halfWidth, residualHeight);
+        init(first + 3, x + halfWidth, y + halfHeight, residualWidth, residualHeight);
+        set(node, FIRST_CHILD, first);
+        return first;
+    }
+
+    private void init(int node, int x, int y, int width, int height) {
+        int[] chunk = nodes[node >>> chunkBits];
+        int offset = (node & chunkMask) * STRIDE;
+        chunk[offset + X] = x;
+        chunk[offset + Y] = y;
+        chunk[offset + WIDTH] = width;
+        chunk[offset + HEIGHT] = height;
+        chunk[offset + COLOR] = 0;
+        chunk[offset + FIRST_CHILD] = 0;
+        errors[node >>> chunkBits][node & chunkMask] = Double.NaN;
+    }
+
+    private int reserve(int count) {
+        int start = size.getAndAdd(count);
+        int chunksNeeded = ((start + count - 1) >>> chunkBits) + 1;
+        if (nodes.length < chunksNeeded) grow(chunksNeeded);
+        return start;
+    }
+
+    private synchronized void grow(int chunksNeeded) {
+        int[][] currentNodes = nodes;
+        if (currentNodes.length >= chunksNeeded) return;
+        int chunks = chunksNeeded;
+        int[][] grownNodes = new int[chunks][];
+        double[][] grownErrors = new double[chunks][];
+        System.arraycopy(currentNodes, 0, grownNodes, 0, currentNodes.length);
+        System.arraycopy(errors, 0, grownErrors, 0, currentNodes.length);
+        for (int i = currentNodes.length; i < chunks; i++) {
+            grownNodes[i] = new int[(1 << chunkBits) * STRIDE];
+            grownErrors[i] = new double[1 << chunkBits];
+        }
+        errors = grownErrors;
+        nodes = grownNodes;
+    }
+
+    // Membuang semua node mulai indeks size (chunk dipakai ulang); tidak boleh dipanggil selama build berjalan
+    void truncate(int size) {
+        this.size.set(size);
+    }
+
+    // Jumlah slot yang sudah dipesan (termasuk sisa blok cursor yang belum terpakai)
+    public int size() {
+        return size.get();
+    }
+
+    // Memori yang sudah dialokasikan untuk chunk (termasuk slot yang belum terpakai)
+    public long getAllocatedBytes() {
+        return (long) nodes.length * (1 << chunkBits) * (STRIDE * 4 + 8);
+    }
+
+    public static int getBytesPerNode() {
+        return STRIDE * 4 + 8;
+    }
+
+    private int get(int node, int field) {
+        return nodes[node >>> chunkBits][(node & chunkMask) * STRIDE + field];
+    }
+
+    private void set(int node, int field, int value) {
+        nodes[node >>> chunkBits][(node & chunkMask) * STRIDE + field] = value;
+    }
+
+    public int getX(int node) { return get(node, X); }
+    public int getY(int node) { return get(node, Y); }
+    public int getWidth(int node) { return get(node, WIDTH); }
+    public int getHeight(int node) { return get(node, HEIGHT); }
+    public int getColor(int node) { return get(node, COLOR); }
+    public int getFirstChild(int node) { return get(node, FIRST_CHILD); }
+    public boolean isLeaf(int node) { return get(node, FIRST_CHILD) == 0; }
+    public double getError(int node) { return errors[node >>> chunkBits][node & chunkMask]; }
+
+    public void setX(int node, int x) { set(node, X, x); }
+    public void setY(int node, int y) { set(node, Y, y); }
+    public void setWidth(int node, int width) { set(node, WIDTH, width); }
+    public void setHeight(int node, int height) { set(node, HEIGHT, height); }
+    public void setColor(int node, int rgb) { set(node, COLOR, rgb & 0xFFFFFF); }
+    public void setFirstChild(int node, int firstChild) { set(node, FIRST_CHILD, firstChild); }
+    public void setError(int node, double error) { errors[node >>> chunkBits][node & chunkMask] = error; }
+}
@@ -1,30 +1,91 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
 public class RGBMatrix {
     private int width, height;
-    private Pixel[] pixels;
+    private int[] pixels;
+    private volatile IntegralImage integralImage;
+    private volatile boolean integralImageEnabled = true;
+    private volatile long integralImageMaxPixels = IntegralImage.DEFAULT_MAX_PIXELS;
+    private volatile MinMaxPyramid minMaxPyramid;
+    private volatile int minMaxLevels = MinMaxPyramid.DEFAULT_MAX_LEVEL;
+    private volatile BlockStatisticsCache blockStatisticsCache;
 
     public RGBMatrix(int width, int height) {
         this.width = width;
         this.height = height;
-        this.pixels = new Pixel[width * height];
-        for (int i = 0; i < pixels.length; i++) {
-            pixels[i] = new Pixel(0, 0, 0);
+        this.pixels = new int[width * height];
+    }
+
+    // Untuk subclass dengan penyimpanan piksel sendiri (pixels = null)
+    protected RGBMatrix(int width, int height, int[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public static RGBMatrix fromBufferedImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        RGBMatrix rgbMatrix = new RGBMatrix(width, height);
+        image.getRGB(0, 0, width, height, rgbMatrix.pixels, 0, width);
+        for (int i = 0; i < rgbMatrix.pixels.length; i++) {
+            rgbMatrix.pixels[i] &= 0xFFFFFF;
         }
+        return rgbMatrix;
     }
 
     public void setPixel(int x, int y, int pixel) {
         if (isOutOfBounds(x, y)) {
             throw new IllegalArgumentException("ERROR: Posisi pixel (" + x + ", " + y + ") di luar batas.");
         }
-        pixels[y * width + x].setRGB(pixel);
+        pixels[y * width + x] = pixel & 0xFFFFFF;
+        invalidateCaches();
+    }
+
+    // Mengisi persegi (dipotong ke batas matriks) dengan satu warna, satu Arrays.fill per baris
+    public void fillRect(int x, int y, int width, int height, int rgb) {
+        int x1 = Math.max(x, 0), x2 = Math.min(x + width, this.width);
+        int y1 = Math.max(y, 0), y2 = Math.min(y + height, this.height);
+        if (x1 >= x2 || y1 >= y2) return;
+        for (int row = y1; row < y2; row++) {
+            Arrays.fill(pixels, row * this.width + x1, row * this.width + x2, rgb & 0xFFFFFF);
+        }
+        invalidateCaches();
+    }
+
+    protected void invalidateCaches() {
+        if (integralImage != null) integralImage = null;
+        if (minMaxPyramid != null) minMaxPyramid = null;
+        BlockStatisticsCache cache = blockStatisticsCache;
+        if (cache != null) cache.clear();
     }
 
     public Pixel getPixel(int x, int y) {
         if (isOutOfBounds(x, y)) {
             throw new IllegalArgumentException("ERROR: Posisi pixel (" + x + ", " + y + ") di luar batas.");
         }
+        int rgb = pixels[y * width + x];
+        return new Pixel((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    // Akses tanpa alokasi Pixel dan tanpa pengecekan batas, untuk loop per piksel
+    public int getRGB(int x, int y) {
         return pixels[y * width + x];
     }
 
+    public int getR(int x, int y) {
+        return (pixels[y * width + x] >> 16) & 0xFF;
+    }
+
+    public int getG(int x, int y) {
+        return (pixels[y * width + x] >> 8) & 0xFF;
+    }
+
+    public int getB(int x, int y) {
+        return pixels[y * width + x] & 0xFF;
+    }
+
     public int getWidth() {
         return width;
     }
@@ -34,9 +95,100 @@ public class RGBMatrix {
     }
 
     public Pixel[] getPixels() {
+        Pixel[] result = new Pixel[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int rgb = pixels[i];
+            result[i] = new Pixel((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+        }
+        return result;
+    }
+
+    // Array piksel di heap untuk jalur cepat (kernel, dsb.); null bila matriks tidak disimpan di heap
+    public int[] heapPixelsOrNull() {
         return pixels;
     }
 
+    // Menyalin sejumlah baris utuh mulai dari baris y ke target (lebar baris = width)
+    public void copyRows(int y, int rows, int[] target, int offset) {
+        System.arraycopy(pixels, y * width, target, offset, rows * width);
+    }
+
+    // null bila dinonaktifkan atau gambar melebihi integralImageMaxPixels; metrik lalu memakai scan blok
+    public IntegralImage getIntegralImage() {
+        if (!isIntegralImageEnabled()) return null;
+        IntegralImage integral = integralImage;
+        if (integral == null) {
+            synchronized (this) {
+                integral = integralImage;
+                if (integral == null) {
+                    integral = new IntegralImage(this);
+                    integralImage = integral;
+                }
+            }
+        }
+        return integral;
+    }
+
+    public boolean isIntegralImageEnabled() {
+        return integralImageEnabled && (long) width * height <= integralImageMaxPixels;
+    }
+
+    public synchronized void setIntegralImageEnabled(boolean integralImageEnabled) {
+        this.integralImageEnabled = integralImageEnabled;
+        if (!integralImageEnabled) integralImage = null;
+    }
+
+    public long getIntegralImageMaxPixels() {
+        return integralImageMaxPixels;
+    }
+
+    // Batas ukuran gambar yang masih dibuatkan integral image (IntegralImage.BYTES_PER_PIXEL byte per piksel)
+    public synchronized void setIntegralImageMaxPixels(long integralImageMaxPixels) {
+        if (integralImageMaxPixels < 0) {
+            throw new IllegalArgumentException("Batas piksel integral image tidak boleh negatif.");
+        }
+        this.integralImageMaxPixels = integralImageMaxPixels;
+        if (!isIntegralImageEnabled()) integralImage = null;
+    }
+
+    // null bila dinonaktifkan (level 0); dibangun sekali dan dibuang saat ada setPixel
+    public MinMaxPyramid getMinMaxPyramid() {
+        if (minMaxLevels == 0) return null;
+        MinMaxPyramid pyramid = minMaxPyramid;
+        if (pyramid == null) {
+            synchronized (this) {
+                pyramid = minMaxPyramid;
+                if (pyramid == null && minMaxLevels > 0) {
+                    pyramid = new MinMaxPyramid(this, minMaxLevels);
+                    minMaxPyramid = pyramid;
+                }
+            }
+        }
+        return pyramid;
+    }
+
+    public int getMinMaxLevels() {
+        return minMaxLevels;
+    }
+
+    // Level tertinggi piramida min/max (semua level ~2.7 byte/piksel); 0 = scan langsung tanpa piramida
+    public synchronized void setMinMaxLevels(int minMaxLevels) {
+        if (minMaxLevels < 0) {
+            throw new IllegalArgumentException("Level piramida min/max tidak boleh negatif.");
+        }
+        this.minMaxLevels = minMaxLevels;
+        minMaxPyramid = null;
+    }
+
+    // null bila tidak dipasang; tidak dibuat otomatis karena hanya berguna bila pohon dibangun berulang
+    public BlockStatisticsCache getBlockStatisticsCache() {
+        return blockStatisticsCache;
+    }
+
+    public void setBlockStatisticsCache(BlockStatisticsCache blockStatisticsCache) {
+        this.blockStatisticsCache = blockStatisticsCache;
+    }
+
     private boolean isOutOfBounds(int x, int y) {
         return x < 0 || x >= width || y < 0 || y >= height;
     }
@@ -51,33 +203,39 @@ public class RGBMatrix {
     }
 
     public double[] calculateAverageRGB(int x, int y, int width, int height) {
-        double sumR = 0, sumG = 0, sumB = 0, cnt = 0;
-        for (int y1 = y; y1 < y + height; y1++) {
-            for (int x1 = x; x1 < x + width; x1++) {
-                if (x1 >= this.getWidth() || y1 >= this.getHeight()) continue;
-                Pixel col = this.getPixel(x1, y1);
-                sumR += col.getR();
-                sumG += col.getG();
-                sumB += col.getB();
-                cnt++;
-            }
+        IntegralImage integral = getIntegralImage();
+        if (integral != null) {
+            return integral.calculateAverageRGB(x, y, width, height);
+        }
+        BlockStatisticsCache cache = blockStatisticsCache;
+        double[] average = new double[3];
+        if (cache != null && cache.get(BlockStatisticsCache.AVERAGE, x, y, width, height, average)) {
+            return average;
         }
-        double avgR = sumR / cnt;
-        double avgG = sumG / cnt;
-        double avgB = sumB / cnt;
-        return new double[]{avgR, avgG, avgB};
+        long[] sums = new long[ChannelKernels.SUMS];
+        ChannelKernels.sums(this, x, y, width, height, sums);
+        // Piksel di luar matriks tidak dihitung
+        double cnt = (double) Math.max(0, Math.min(x + width, this.getWidth()) - Math.max(x, 0))
+                * Math.max(0, Math.min(y + height, this.getHeight()) - Math.max(y, 0));
+        double sumR = sums[0], sumG = sums[1], sumB = sums[2];
+        average[0] = sumR / cnt;
+        average[1] = sumG / cnt;
+        average[2] = sumB / cnt;
+        if (cache != null) cache.put(BlockStatisticsCache.AVERAGE, x, y, width, height, average);
+        return average;
     }
 
     public RGBMatrix copy() {
         RGBMatrix copy = new RGBMatrix(width, height);
-        for (int i = 0; i < pixels.length; i++) {
-            copy.pixels[i] = new Pixel(
-                pixels[i].getR(),
-                pixels[i].getG(),
-                pixels[i].getB()
-            );
-        }
+        copySettingsTo(copy);
+        copyRows(0, height, copy.pixels, 0);
         return copy;
-    }    
+    }
+
+    protected void copySettingsTo(RGBMatrix target) {
+        target.integralImageEnabled = integralImageEnabled;
+        target.integralImageMaxPixels = integralImageMaxPixels;
+        target.minMaxLevels = minMaxLevels;
+    }
 }
 
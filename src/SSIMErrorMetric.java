@@ -8,78 +8,64 @@ public class SSIMErrorMetric implements ErrorMetric {
     
     public double calculateSSIMWithMonotoneBlock(RGBMatrix originalMatrix, 
     int x, int y, int width, int height, Pixel avgColor) {
-        double ssimR = calculateSSIMForChannel(originalMatrix, x, y, width, height, avgColor, 0);
-        double ssimG = calculateSSIMForChannel(originalMatrix, x, y, width, height, avgColor, 1);
-        double ssimB = calculateSSIMForChannel(originalMatrix, x, y, width, height, avgColor, 2);
-        return W_R * ssimR + W_G * ssimG + W_B * ssimB;
+        return calculateSSIM(originalMatrix, x, y, width, height, avgColor);
     }
 
     @Override
     public double calculateError(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
-        Pixel avgColor = calculateAverageColor(rgbMatrix, x, y, width, height);
-
-        double ssim = calculateSSIMWithMonotoneBlock(rgbMatrix, x, y, width, height, avgColor);
-
-        return 1.0 - ssim;
+        return 1.0 - calculateSSIM(rgbMatrix, x, y, width, height, null);
     }
 
-    private Pixel calculateAverageColor(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
-        int totalR = 0, totalG = 0, totalB = 0;
-        int count = 0;
+    // Jumlah dan jumlah kuadrat ketiga kanal dikumpulkan sekaligus: O(1) dari integral image,
+    // atau satu kali scan blok lewat ChannelKernels. avgColor == null berarti rata-rata diambil dari jumlah tersebut.
+    private double calculateSSIM(RGBMatrix rgbMatrix, int x, int y, int width, int height, Pixel avgColor) {
+        long count;
+        long sumR, sumG, sumB, sumSqR, sumSqG, sumSqB;
 
-        for (int cy = y; cy < y + height && cy < rgbMatrix.getHeight(); cy++) {
-            for (int cx = x; cx < x + width && cx < rgbMatrix.getWidth(); cx++) {
-                Pixel pixel = rgbMatrix.getPixel(cx, cy);
-                totalR += pixel.getR();
-                totalG += pixel.getG();
-                totalB += pixel.getB();
-                count++;
+        IntegralImage integral = rgbMatrix.getIntegralImage();
+        if (integral != null) {
+            count = integral.getCount(x, y, width, height);
+            sumR = integral.getSum(0, x, y, width, height);
+            sumG = integral.getSum(1, x, y, width, height);
+            sumB = integral.getSum(2, x, y, width, height);
+            sumSqR = integral.getSumOfSquares(0, x, y, width, height);
+            sumSqG = integral.getSumOfSquares(1, x, y, width, height);
+            sumSqB = integral.getSumOfSquares(2, x, y, width, height);
+        } else {
+            long[] sums = new long[ChannelKernels.SUMS];
+            ChannelKernels.sums(rgbMatrix, x, y, width, height, sums);
+            sumR = sums[0];
+            sumG = sums[1];
+            sumB = sums[2];
+            sumSqR = sums[3];
+            sumSqG = sums[4];
+            sumSqB = sums[5];
+            count = 0;
+            int endX = Math.min(x + width, rgbMatrix.getWidth());
+            int endY = Math.min(y + height, rgbMatrix.getHeight());
+            if (endX > x && endY > y) count = (long) (endX - x) * (endY - y);
         }
-    }
 
-        if (count == 0) return new Pixel(0, 0, 0);
+        // Blok kosong: SSIM setiap kanal dianggap 1.0
+        if (count == 0) return W_R + W_G + W_B;
 
-        return new Pixel(totalR / count, totalG / count, totalB / count);
+        // Warna rata-rata blok terkompresi berupa integer (sama seperti Pixel)
+        double meanYR = avgColor != null ? avgColor.getR() : (double) (sumR / count);
+        double meanYG = avgColor != null ? avgColor.getG() : (double) (sumG / count);
+        double meanYB = avgColor != null ? avgColor.getB() : (double) (sumB / count);
+
+        return W_R * calculateSSIMForChannel(count, sumR, sumSqR, meanYR)
+             + W_G * calculateSSIMForChannel(count, sumG, sumSqG, meanYG)
+             + W_B * calculateSSIMForChannel(count, sumB, sumSqB, meanYB);
     }
-    private double calculateSSIMForChannel(RGBMatrix originalMatrix, int x, int y, 
-                                        int width, int height, Pixel avgColor, int channel) {
-        double sumX = 0;
-        double sumXSquare = 0;
-        int count = 0;
-        
-        double meanY;
-        if (channel == 0) {
-            meanY = avgColor.getR();
-        } else if (channel == 1) {
-            meanY = avgColor.getG();
-        } else { 
-            meanY = avgColor.getB();
-        }
-        
-        for (int cy = y; cy < y + height && cy < originalMatrix.getHeight(); cy++) {
-            for (int cx = x; cx < x + width && cx < originalMatrix.getWidth(); cx++) {
-                Pixel pixel = originalMatrix.getPixel(cx, cy);
-                double pixelX;
-                
-                if (channel == 0) {
-                    pixelX = pixel.getR();
-                } else if (channel == 1) {
-                    pixelX = pixel.getG();
-                } else {
-                    pixelX = pixel.getB();
-                }
-                
-                sumX += pixelX;
-                sumXSquare += pixelX * pixelX;
-                count++;
-            }
-        }
-        
-        if (count == 0) return 1.0;
-        
-        double meanX = sumX / count;
-        double varianceX = (sumXSquare / count) - (meanX * meanX);
-        
+
+    private double calculateSSIMForChannel(long count, long sum, long sumOfSquares, double meanY) {
+        double meanX = (double) sum / count;
+        double varianceX = sumOfSquares / (double) count - meanX * meanX;
+        return calculateSSIM(meanX, meanY, varianceX);
+    }
+
+    private double calculateSSIM(double meanX, double meanY, double varianceX) {
         double stdDevX = Math.sqrt(Math.max(0, varianceX));
         
         double numerator = (2 * meanX * meanY + C1) * C2;
@@ -98,6 +84,16 @@ public class SSIMErrorMetric implements ErrorMetric {
             default: throw new IllegalArgumentException("Invalid channel index: " + channel);
         }
     }
+
+    @Override
+    public boolean isConstantTime(RGBMatrix rgbMatrix) {
+        return rgbMatrix.isIntegralImageEnabled();
+    }
+
+    @Override
+    public boolean isSampleEstimable() {
+        return true;
+    }
     
     @Override
     public String getName() {
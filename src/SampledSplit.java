@@ -0,0 +1,179 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keputusan split aproksimasi untuk blok besar: error diperkirakan dari REPLICATES sampel piksel
+ * terstratifikasi (grid GRID x GRID, satu piksel acak per sel) yang masing-masing dihitung dengan metrik yang sama.
+ * Rata-rata replikasi dan simpangan bakunya memberi interval kepercayaan 99% (distribusi t); bila interval itu,
+ * ditambah margin * threshold, masih memotong threshold, keputusan diserahkan ke scan eksak.
+ *
+ * Interval itu hanya bermakna bila error sampel tak bias (ErrorMetric.isSampleEstimable); metrik lain selalu
+ * memakai scan eksak. Satu dari AUDIT_INTERVAL keputusan sampel juga dihitung eksak; bila bagian audit yang
+ * keputusannya berbeda melebihi tolerance, QuadTree membangun ulang pohon tanpa sampel.
+ *
+ * Sampel diambil dengan seed dari posisi blok, jadi hasil build deterministik (juga saat paralel).
+ * Penghitung keputusan ada di Statistics, satu per build.
+ */
+public class SampledSplit {
+    public static final double DEFAULT_MARGIN = 0.1;
+    public static final double DEFAULT_TOLERANCE = 0.05;
+    // Di bawah luas ini scan eksak sudah cukup murah dibanding REPLICATES * GRID² piksel sampel
+    public static final int DEFAULT_MIN_AREA = 128 * 128;
+    private static final int GRID = 12;
+    private static final int REPLICATES = 8;
+    // t(0.995; REPLICATES - 1)
+    private static final double CONFIDENCE_T = 3.499;
+    private static final int AUDIT_INTERVAL = 8;
+
+    private final double margin;
+    private final double tolerance;
+    private final int minArea;
+
+    // Penghitung satu build; dibuat ulang oleh QuadTree di setiap buildTree()
+    public static final class Statistics {
+        private final LongAdder sampledDecisions = new LongAdder();
+        private final LongAdder exactFallbacks = new LongAdder();
+        private final LongAdder audits = new LongAdder();
+        private final LongAdder auditMismatches = new LongAdder();
+        private volatile boolean rebuilt;
+
+        public long getSampledDecisions() {
+            return sampledDecisions.sum();
+        }
+
+        public long getExactFallbacks() {
+            return exactFallbacks.sum();
+        }
+
+        public long getAudits() {
+            return audits.sum();
+        }
+
+        public long getAuditMismatches() {
+            return auditMismatches.sum();
+        }
+
+        // Persentase blok kandidat yang tetap membutuhkan scan eksak
+        public double getFallbackRate() {
+            long sampled = getSampledDecisions(), fallbacks = getExactFallbacks();
+            return sampled + fallbacks == 0 ? 0.0 : fallbacks * 100.0 / (sampled + fallbacks);
+        }
+
+        // true bila audit melebihi toleransi dan pohon dibangun ulang dengan error eksak
+        public boolean isRebuilt() {
+            return rebuilt;
+        }
+
+        void markRebuilt() {
+            rebuilt = true;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d keputusan dari sampel, %d fallback ke scan eksak (%.1f%%), audit %d/%d berbeda%s",
+                    getSampledDecisions(), getExactFallbacks(), getFallbackRate(), getAuditMismatches(), getAudits(),
+                    rebuilt ? ", melebihi toleransi: dibangun ulang eksak" : "");
+        }
+    }
+
+    public SampledSplit() {
+        this(DEFAULT_MARGIN, DEFAULT_TOLERANCE, DEFAULT_MIN_AREA);
+    }
+
+    public SampledSplit(double margin) {
+        this(margin, DEFAULT_TOLERANCE, DEFAULT_MIN_AREA);
+    }
+
+    public SampledSplit(double margin, double tolerance) {
+        this(margin, tolerance, DEFAULT_MIN_AREA);
+    }
+
+    public SampledSplit(double margin, double tolerance, int minArea) {
+        if (margin < 0 || Double.isNaN(margin)) {
+            throw new IllegalArgumentException("Margin split sampel tidak boleh negatif.");
+        }
+        if (!(tolerance >= 0 && tolerance <= 1)) {
+            throw new IllegalArgumentException("Toleransi split sampel harus di antara 0 dan 1.");
+        }
+        if (minArea < GRID * GRID) {
+            throw new IllegalArgumentException("Luas minimum split sampel harus minimal " + GRID * GRID + " piksel.");
+        }
+        this.margin = margin;
+        this.tolerance = tolerance;
+        this.minArea = minArea;
+    }
+
+    public double getMargin() {
+        return margin;
+    }
+
+    // Bagian maksimum keputusan sampel yang diaudit yang boleh berbeda dari keputusan eksak
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public int getMinArea() {
+        return minArea;
+    }
+
+    public boolean isExceeded(Statistics statistics) {
+        return statistics.getAuditMismatches() > tolerance * statistics.getAudits();
+    }
+
+    // Perkiraan error blok bila keputusan terhadap threshold sudah cukup yakin (atau error eksak bila blok
+    // terpilih untuk audit); NaN berarti pemanggil harus memakai error eksak (blok terlalu kecil, metrik O(1)
+    // atau tidak bisa diperkirakan dari sampel, atau perkiraan terlalu dekat threshold)
+    public double estimate(ErrorMetric errorMetric, RGBMatrix rgbMatrix, int x, int y, int width, int height,
+                           double threshold, Statistics statistics) {
+        if ((long) width * height < minArea || !errorMetric.isSampleEstimable()
+                || errorMetric.isConstantTime(rgbMatrix)) {
+            return Double.NaN;
+        }
+
+        int columns = Math.min(GRID, width), rows = Math.min(GRID, height);
+        RGBMatrix sample = new RGBMatrix(columns, rows);
+        sample.setIntegralImageEnabled(false);
+        sample.setMinMaxLevels(0);
+        SplittableRandom random = new SplittableRandom(seed(x, y, width, height));
+        double sum = 0, sumOfSquares = 0;
+        for (int replicate = 0; replicate < REPLICATES; replicate++) {
+            for (int row = 0; row < rows; row++) {
+                int y1 = y + (int) ((long) height * row / rows);
+                int y2 = y + (int) ((long) height * (row + 1) / rows);
+                for (int column = 0; column < columns; column++) {
+                    int x1 = x + (int) ((long) width * column / columns);
+                    int x2 = x + (int) ((long) width * (column + 1) / columns);
+                    sample.setPixel(column, row, rgbMatrix.getRGB(x1 + random.nextInt(x2 - x1), y1 + random.nextInt(y2 - y1)));
+                }
+            }
+            double error = errorMetric.calculateError(sample, 0, 0, columns, rows);
+            sum += error;
+            sumOfSquares += error * error;
+        }
+
+        double mean = sum / REPLICATES;
+        double variance = Math.max(0.0, (sumOfSquares - REPLICATES * mean * mean) / (REPLICATES - 1));
+        double bound = CONFIDENCE_T * Math.sqrt(variance / REPLICATES) + margin * threshold;
+        if (Math.abs(mean - threshold) <= bound) {
+            statistics.exactFallbacks.increment();
+            return Double.NaN;
+        }
+        statistics.sampledDecisions.increment();
+        if (random.nextInt(AUDIT_INTERVAL) != 0) return mean;
+
+        double exact = errorMetric.calculateError(rgbMatrix, x, y, width, height);
+        statistics.audits.increment();
+        if ((mean > threshold) != (exact > threshold)) statistics.auditMismatches.increment();
+        return exact;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("margin %.2f, toleransi %.2f", margin, tolerance);
+    }
+
+    private static long seed(int x, int y, int width, int height) {
+        long seed = ((long) x << 32 | (y & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return seed ^ ((long) width << 32 | (height & 0xFFFFFFFFL));
+    }
+}
@@ -0,0 +1,97 @@
+// Implementasi acuan ChannelKernels; juga dipakai VectorChannelKernels untuk blok yang terlalu sempit.
+// Jumlah per baris dikumpulkan dalam int lalu ditambahkan ke long, sehingga C2 bisa memvektorkan loop
+// dalamnya sendiri (akumulator long menghalangi itu). Baris dipotong per ROW_CHUNK piksel agar Σc² tidak overflow.
+public class ScalarChannelKernels extends ChannelKernels {
+    // 2^15 * 255² < 2^31
+    static final int ROW_CHUNK = 1 << 15;
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void sums(int[] pixels, int offset, int stride, int width, int height, long[] out) {
+        long sumR = 0, sumG = 0, sumB = 0, squaresR = 0, squaresG = 0, squaresB = 0;
+        for (int row = 0, start = offset; row < height; row++, start += stride) {
+            for (int chunk = start, rowEnd = start + width; chunk < rowEnd; chunk += ROW_CHUNK) {
+                int rowR = 0, rowG = 0, rowB = 0, rowRR = 0, rowGG = 0, rowBB = 0;
+                for (int i = chunk, end = Math.min(rowEnd, chunk + ROW_CHUNK); i < end; i++) {
+                    int rgb = pixels[i];
+                    int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+                    rowR += r;
+                    rowG += g;
+                    rowB += b;
+                    rowRR += r * r;
+                    rowGG += g * g;
+                    rowBB += b * b;
+                }
+                sumR += rowR;
+                sumG += rowG;
+                sumB += rowB;
+                squaresR += rowRR;
+                squaresG += rowGG;
+                squaresB += rowBB;
+            }
+        }
+        out[0] = sumR;
+        out[1] = sumG;
+        out[2] = sumB;
+        out[3] = squaresR;
+        out[4] = squaresG;
+        out[5] = squaresB;
+    }
+
+    @Override
+    public void absoluteSums(int[] pixels, int offset, int stride, int width, int height, int[] pivots, long[] out) {
+        int pivotR = pivots[0], pivotG = pivots[1], pivotB = pivots[2];
+        long absR = 0, absG = 0, absB = 0, countR = 0, countG = 0, countB = 0;
+        for (int row = 0, start = offset; row < height; row++, start += stride) {
+            for (int chunk = start, rowEnd = start + width; chunk < rowEnd; chunk += ROW_CHUNK) {
+                int rowAbsR = 0, rowAbsG = 0, rowAbsB = 0, rowCountR = 0, rowCountG = 0, rowCountB = 0;
+                for (int i = chunk, end = Math.min(rowEnd, chunk + ROW_CHUNK); i < end; i++) {
+                    int rgb = pixels[i];
+                    int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+                    rowAbsR += Math.abs(r - pivotR);
+                    rowAbsG += Math.abs(g - pivotG);
+                    rowAbsB += Math.abs(b - pivotB);
+                    // Bit tanda pivot - c: 1 bila c > pivot; tanpa cabang
+                    rowCountR += (pivotR - r) >>> 31;
+                    rowCountG += (pivotG - g) >>> 31;
+                    rowCountB += (pivotB - b) >>> 31;
+                }
+                absR += rowAbsR;
+                absG += rowAbsG;
+                absB += rowAbsB;
+                countR += rowCountR;
+                countG += rowCountG;
+                countB += rowCountB;
+            }
+        }
+        out[0] = absR;
+        out[1] = absG;
+        out[2] = absB;
+        out[3] = countR;
+        out[4] = countG;
+        out[5] = countB;
+    }
+
+    // Kanal dibandingkan di posisinya masing-masing (rgb & 0xFF0000 dst.), seperti MinMaxPyramid
+    @Override
+    public long minMax(int[] pixels, int offset, int stride, int width, int height) {
+        int minR = 0xFF0000, minG = 0xFF00, minB = 0xFF, maxR = 0, maxG = 0, maxB = 0;
+        for (int row = 0, start = offset; row < height; row++, start += stride) {
+            for (int i = start, end = start + width; i < end; i++) {
+                int rgb = pixels[i];
+                int r = rgb & 0xFF0000, g = rgb & 0xFF00, b = rgb & 0xFF;
+                minR = Math.min(minR, r);
+                minG = Math.min(minG, g);
+                minB = Math.min(minB, b);
+                maxR = Math.max(maxR, r);
+                maxG = Math.max(maxG, g);
+                maxB = Math.max(maxB, b);
+            }
+        }
+        return MinMaxPyramid.pack(minR | minG | minB, maxR | maxG | maxB);
+    }
+}
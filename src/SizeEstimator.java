@@ -0,0 +1,7 @@
+public interface SizeEstimator {
+    long estimateSize(TreeStatistics statistics);
+
+    void calibrate(TreeStatistics statistics, long actualSize);
+
+    boolean isCalibrated();
+}
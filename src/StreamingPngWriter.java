@@ -0,0 +1,161 @@
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Penulis PNG RGB 8-bit yang menerima baris secara berurutan, sehingga gambar tidak perlu
+ * berada utuh di memori. Data terkompresi dipotong menjadi beberapa chunk IDAT.
+ * Filter per baris dipilih antara None, Sub, dan Up (jumlah nilai absolut terkecil).
+ */
+public class StreamingPngWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int IDAT_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final int width, height;
+    private final Deflater deflater;
+    private final DeflaterOutputStream idat;
+    private byte[] previousRow, currentRow;
+    private final byte[][] filtered;
+    private int rowsWritten;
+    private boolean closed;
+
+    public StreamingPngWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Ukuran gambar PNG harus positif.");
+        }
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.previousRow = new byte[3 * width];
+        this.currentRow = new byte[3 * width];
+        this.filtered = new byte[3][3 * width];
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.idat = new DeflaterOutputStream(new ChunkOutputStream(), deflater, IDAT_SIZE);
+
+        this.out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8;  // bit depth
+        header[9] = 2;  // truecolor RGB
+        writeChunk("IHDR", header, header.length);
+    }
+
+    // Menulis sejumlah baris dari array RGB terpaket (lebar baris = width)
+    public void writeRows(int[] rgb, int offset, int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IOException("Jumlah baris PNG melebihi tinggi gambar.");
+        }
+        for (int row = 0; row < rows; row++) {
+            int start = offset + row * width;
+            for (int x = 0, i = 0; x < width; x++, i += 3) {
+                int pixel = rgb[start + x];
+                currentRow[i] = (byte) (pixel >> 16);
+                currentRow[i + 1] = (byte) (pixel >> 8);
+                currentRow[i + 2] = (byte) pixel;
+            }
+            writeFilteredRow();
+            byte[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+            rowsWritten++;
+        }
+    }
+
+    private void writeFilteredRow() throws IOException {
+        long sumNone = 0, sumSub = 0, sumUp = 0;
+        for (int i = 0; i < currentRow.length; i++) {
+            int value = currentRow[i] & 0xFF;
+            int left = i >= 3 ? currentRow[i - 3] & 0xFF : 0;
+            int up = rowsWritten > 0 ? previousRow[i] & 0xFF : 0;
+            filtered[0][i] = (byte) value;
+            filtered[1][i] = (byte) (value - left);
+            filtered[2][i] = (byte) (value - up);
+            sumNone += Math.abs(filtered[0][i]);
+            sumSub += Math.abs(filtered[1][i]);
+            sumUp += Math.abs(filtered[2][i]);
+        }
+        int filter = 0;
+        if (sumSub < sumNone) filter = 1;
+        if (sumUp < Math.min(sumNone, sumSub)) filter = 2;
+        idat.write(filter);
+        idat.write(filtered[filter], 0, currentRow.length);
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (rowsWritten != height) {
+                throw new IOException("PNG belum lengkap: " + rowsWritten + " dari " + height + " baris ditulis.");
+            }
+            idat.finish();
+            idat.flush();
+            writeChunk("IEND", new byte[0], 0);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    // Menampung output Deflater dan menuliskannya sebagai chunk IDAT berukuran tetap
+    private class ChunkOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[IDAT_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) flush();
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) flush();
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count == 0) return;
+            writeChunk("IDAT", buffer, count);
+            count = 0;
+        }
+    }
+}
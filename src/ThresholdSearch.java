@@ -0,0 +1,145 @@
+/**
+ * Mencari threshold t sehingga rate(t) ≈ target, dengan rate(t) monoton naik terhadap t.
+ * Bracket dicari dengan memperbesar/memperkecil tebakan awal, lalu dipersempit dengan
+ * regula falsi (varian Illinois) yang jatuh ke bisection bila tebakan tidak memperkecil interval.
+ */
+public class ThresholdSearch {
+    public static final double DEFAULT_TOLERANCE = 1.0;
+    public static final int DEFAULT_MAX_EVALUATIONS = 8;
+    private static final double BRACKET_FACTOR = 4.0;
+
+    public interface RateFunction {
+        double evaluate(double threshold);
+    }
+
+    public static class Result {
+        public final double threshold;
+        public final double rate;
+        public final int evaluations;
+        public final boolean converged;
+
+        public Result(double threshold, double rate, int evaluations, boolean converged) {
+            this.threshold = threshold;
+            this.rate = rate;
+            this.evaluations = evaluations;
+            this.converged = converged;
+        }
+
+        @Override
+        public String toString() {
+            return "Result { threshold = " + threshold + ", rate = " + rate + ", evaluations = " + evaluations
+                    + ", converged = " + converged + " }";
+        }
+    }
+
+    private final double tolerance;
+    private final int maxEvaluations;
+
+    public ThresholdSearch() {
+        this(DEFAULT_TOLERANCE, DEFAULT_MAX_EVALUATIONS);
+    }
+
+    public ThresholdSearch(double tolerance, int maxEvaluations) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Toleransi tidak boleh negatif.");
+        }
+        if (maxEvaluations < 1) {
+            throw new IllegalArgumentException("Jumlah evaluasi maksimum minimal 1.");
+        }
+        this.tolerance = tolerance;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    public Result search(RateFunction function, double minThreshold, double maxThreshold,
+                         double initialThreshold, double target) {
+        Probe probe = new Probe(function, target);
+
+        double low = Math.max(minThreshold, Math.min(maxThreshold, initialThreshold));
+        double fLow = probe.evaluate(low);
+        if (Math.abs(fLow) <= tolerance) return probe.result(true);
+
+        // Perluas bracket ke arah target sampai tanda selisih berubah
+        double high;
+        double fHigh;
+        if (fLow < 0) {
+            high = low;
+            fHigh = fLow;
+            while (fHigh < 0) {
+                if (high >= maxThreshold || probe.evaluations >= maxEvaluations) return probe.result(false);
+                low = high;
+                fLow = fHigh;
+                high = high * BRACKET_FACTOR;
+                if (high <= minThreshold) high = minThreshold + (maxThreshold - minThreshold) * 1e-3;
+                high = Math.min(maxThreshold, high);
+                fHigh = probe.evaluate(high);
+                if (Math.abs(fHigh) <= tolerance) return probe.result(true);
+            }
+        } else {
+            high = low;
+            fHigh = fLow;
+            while (fLow > 0) {
+                if (low <= minThreshold || probe.evaluations >= maxEvaluations) return probe.result(false);
+                high = low;
+                fHigh = fLow;
+                low = low / BRACKET_FACTOR;
+                if (low - minThreshold < (maxThreshold - minThreshold) * 1e-4) low = minThreshold;
+                fLow = probe.evaluate(low);
+                if (Math.abs(fLow) <= tolerance) return probe.result(true);
+            }
+        }
+
+        int side = 0;
+        while (probe.evaluations < maxEvaluations) {
+            double candidate = low - fLow * (high - low) / (fHigh - fLow);
+            double margin = (high - low) * 0.05;
+            if (Double.isNaN(candidate) || candidate <= low + margin || candidate >= high - margin) {
+                candidate = (low + high) / 2.0;
+            }
+
+            double fCandidate = probe.evaluate(candidate);
+            if (Math.abs(fCandidate) <= tolerance) return probe.result(true);
+
+            if (fCandidate < 0) {
+                low = candidate;
+                fLow = fCandidate;
+                if (side == -1) fHigh /= 2.0;
+                side = -1;
+            } else {
+                high = candidate;
+                fHigh = fCandidate;
+                if (side == 1) fLow /= 2.0;
+                side = 1;
+            }
+        }
+        return probe.result(false);
+    }
+
+    private static class Probe {
+        private final RateFunction function;
+        private final double target;
+        private int evaluations;
+        private double bestThreshold, bestRate;
+        private double bestDiff = Double.POSITIVE_INFINITY;
+
+        Probe(RateFunction function, double target) {
+            this.function = function;
+            this.target = target;
+        }
+
+        double evaluate(double threshold) {
+            double rate = function.evaluate(threshold);
+            evaluations++;
+            double diff = rate - target;
+            if (Math.abs(diff) < bestDiff) {
+                bestDiff = Math.abs(diff);
+                bestThreshold = threshold;
+                bestRate = rate;
+            }
+            return diff;
+        }
+
+        Result result(boolean converged) {
+            return new Result(bestThreshold, bestRate, evaluations, converged);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Kompresi gambar yang lebih besar dari heap: sumber dibaca per pita (band) setinggi satu tile
+ * lewat BandImageReader (PNG/JPEG di-decode sekali secara berurutan; format lain per source region,
+ * yang bisa men-decode ulang file untuk setiap pita), setiap tile 2^k x 2^k dikompresi dengan quadtree sendiri,
+ * lalu pita hasil langsung ditulis ke PNG baris demi baris.
+ * Memori puncak ~ lebar gambar x tileSize (pita) ditambah struktur satu tile, bukan ukuran gambar.
+ *
+ * Karena setiap tile punya akar sendiri, hasilnya bisa sedikit berbeda dari satu quadtree
+ * untuk seluruh gambar; bila tileSize >= ukuran gambar, hasilnya identik.
+ */
+public class TiledCompressor {
+    public static final int DEFAULT_TILE_SIZE = 1024;
+
+    private final ErrorMetric errorMetric;
+    private final double threshold;
+    private final int minBlockSize;
+    private final int tileSize;
+    private boolean parallelBuild;
+    private int parallelCutoff = QuadTree.DEFAULT_PARALLEL_CUTOFF;
+    private int width, height;
+    private long nodeCount;
+    private int maxDepth;
+
+    public TiledCompressor(ErrorMetric errorMetric, double threshold, int minBlockSize, int tileSize) {
+        if (tileSize <= 0 || Integer.bitCount(tileSize) != 1) {
+            throw new IllegalArgumentException("Ukuran tile harus pangkat dua.");
+        }
+        this.errorMetric = errorMetric;
+        this.threshold = threshold;
+        this.minBlockSize = minBlockSize;
+        this.tileSize = tileSize;
+    }
+
+    public void setParallel(boolean parallelBuild, int parallelCutoff) {
+        if (parallelCutoff <= 0) {
+            throw new IllegalArgumentException("Parallel cutoff harus positif.");
+        }
+        this.parallelBuild = parallelBuild;
+        this.parallelCutoff = parallelCutoff;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    // Output selalu PNG: writer JPEG bawaan ImageIO meminta seluruh raster sekaligus
+    public void compress(File input, File output) throws IOException {
+        try (BandImageReader reader = new BandImageReader(input)) {
+            width = reader.getWidth();
+            height = reader.getHeight();
+            try (StreamingPngWriter writer = new StreamingPngWriter(
+                    new BufferedOutputStream(new FileOutputStream(output)), width, height)) {
+                reader.read(tileSize, (band, bandY, bandHeight) -> {
+                    compressBand(band, bandHeight);
+                    writer.writeRows(band, 0, bandHeight);
+                });
+            }
+        }
+    }
+
+    private void compressBand(int[] bandPixels, int bandHeight) {
+        for (int tileX = 0; tileX < width; tileX += tileSize) {
+            int tileWidth = Math.min(tileSize, width - tileX);
+            RGBMatrix tile = new RGBMatrix(tileWidth, bandHeight);
+            int[] tilePixels = tile.heapPixelsOrNull();
+            for (int y = 0; y < bandHeight; y++) {
+                System.arraycopy(bandPixels, y * width + tileX, tilePixels, y * tileWidth, tileWidth);
+            }
+
+            QuadTree quadTree = new QuadTree(tile, errorMetric, threshold, minBlockSize);
+            quadTree.setParallel(parallelBuild, parallelCutoff);
+            quadTree.buildTree();
+            nodeCount += quadTree.getNodeCount();
+            maxDepth = Math.max(maxDepth, quadTree.getMaxDepth());
+
+            // Hasil tile langsung dirender ke posisinya di pita
+            quadTree.render(bandPixels, tileX, width, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+public class TreeStatistics {
+    private final int leafCount;
+    private final int[] leafSizeHistogram;
+    private final long colorRuns;
+
+    public TreeStatistics(int leafCount, int[] leafSizeHistogram, long colorRuns) {
+        this.leafCount = leafCount;
+        this.leafSizeHistogram = leafSizeHistogram;
+        this.colorRuns = colorRuns;
+    }
+
+    // Statistik pohon: jumlah leaf, histogram luas leaf (per pangkat dua),
+    // dan jumlah run warna horizontal pada raster keluaran (dihitung dari pohon, tanpa merender raster)
+    public static TreeStatistics of(QuadTree quadTree) {
+        int[] histogram = new int[32];
+        long boundaries = countBoundaries(quadTree.getArena(), quadTree.getRootIndex(), histogram);
+        int leafCount = 0;
+        for (int count : histogram) leafCount += count;
+        long runs = quadTree.getWidth() > 0 && quadTree.getHeight() > 0 ? quadTree.getHeight() + boundaries : 0;
+        return new TreeStatistics(leafCount, histogram, runs);
+    }
+
+    // Run per baris = 1 + jumlah batas vertikal antar-leaf bersebelahan yang warnanya berbeda, jadi total run =
+    // tinggi + Σ (baris yang dipisahkan batas tersebut). Setiap batas terletak tepat pada garis tengah vertikal
+    // satu node (TL|TR dan BL|BR), sehingga cukup menyusuri tepi kanan anak kiri dan tepi kiri anak kanan.
+    // O(node) waktu tanpa alokasi, bukan O(piksel) seperti merender raster. Histogram leaf diisi sekalian.
+    private static long countBoundaries(QuadTreeNodeArena arena, int node, int[] histogram) {
+        if (arena.isLeaf(node)) {
+            int area = arena.getWidth(node) * arena.getHeight(node);
+            histogram[area > 0 ? 31 - Integer.numberOfLeadingZeros(area) : 0]++;
+            return 0;
+        }
+        int child = arena.getFirstChild(node);
+        long boundaries = countBoundaries(arena, child, histogram) + countBoundaries(arena, child + 1, histogram)
+                + countBoundaries(arena, child + 2, histogram) + countBoundaries(arena, child + 3, histogram);
+        // Node selebar 1 piksel punya anak kiri kosong; tidak ada garis tengah
+        if (arena.getWidth(child) > 0) {
+            boundaries += crossBoundaries(arena, child, child + 1) + crossBoundaries(arena, child + 2, child + 3);
+        }
+        return boundaries;
+    }
+
+    // Baris tempat tepi kanan node left dan tepi kiri node right berbeda warna. Keduanya mulai dengan rentang
+    // baris yang sama; bila hanya satu yang leaf, rentangnya memuat rentang node lain, jadi tumpang tindihnya
+    // selalu tinggi node terkecil
+    private static long crossBoundaries(QuadTreeNodeArena arena, int left, int right) {
+        boolean leftLeaf = arena.isLeaf(left), rightLeaf = arena.isLeaf(right);
+        if (leftLeaf && rightLeaf) {
+            return arena.getColor(left) != arena.getColor(right)
+                    ? Math.min(arena.getHeight(left), arena.getHeight(right)) : 0;
+        }
+        if (!leftLeaf) {
+            // Tepi kanan: TR dan BR (selalu tidak kosong)
+            int child = arena.getFirstChild(left);
+            if (!rightLeaf) {
+                int rightEdge = leftEdgeChild(arena, right);
+                return crossBoundaries(arena, child + 1, rightEdge) + crossBoundaries(arena, child + 3, rightEdge + 2);
+            }
+            return crossBoundaries(arena, child + 1, right) + crossBoundaries(arena, child + 3, right);
+        }
+        int rightEdge = leftEdgeChild(arena, right);
+        return crossBoundaries(arena, left, rightEdge) + crossBoundaries(arena, left, rightEdge + 2);
+    }
+
+    // Anak atas pada tepi kiri node (TL, atau TR bila anak kiri kosong); anak bawahnya selalu indeks + 2
+    private static int leftEdgeChild(QuadTreeNodeArena arena, int node) {
+        int child = arena.getFirstChild(node);
+        return arena.getWidth(child) > 0 ? child : child + 1;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int[] getLeafSizeHistogram() {
+        return leafSizeHistogram;
+    }
+
+    public long getColorRuns() {
+        return colorRuns;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeStatistics { leafCount = " + leafCount + ", colorRuns = " + colorRuns + " }";
+    }
+}
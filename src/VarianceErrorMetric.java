@@ -6,30 +6,38 @@ public class VarianceErrorMetric implements ErrorMetric {
     
     @Override
     public double calculateError(RGBMatrix rgbMatrix, int x, int y, int width, int height) {
-        double avgR = 0, avgG = 0, avgB = 0, cnt = 0;
-        double[] avgRGB = rgbMatrix.calculateAverageRGB(x, y, width, height);
-        avgR = avgRGB[0]; avgG = avgRGB[1]; avgB = avgRGB[2];
-        double varR = 0, varG = 0, varB = 0;
-        for (int y1 = y; y1 < y + height; y1++) {
-            for (int x1 = x; x1 < x + width; x1++) {
-                Pixel col = rgbMatrix.getPixel(x1, y1);
-                double diffR = col.getR() - avgR;
-                double diffG = col.getG() - avgG;
-                double diffB = col.getB() - avgB;
-                varR += diffR * diffR;
-                varG += diffG * diffG;
-                varB += diffB * diffB;
-                cnt++;
-            }
+        IntegralImage integral = rgbMatrix.getIntegralImage();
+        if (integral != null) {
+            return (integral.getVariance(0, x, y, width, height)
+                    + integral.getVariance(1, x, y, width, height)
+                    + integral.getVariance(2, x, y, width, height)) / 3.0;
         }
+        // Tanpa integral image: Σc dan Σc² dari satu scan blok, rumus sama dengan IntegralImage.getVariance
+        long[] sums = new long[ChannelKernels.SUMS];
+        ChannelKernels.sums(rgbMatrix, x, y, width, height, sums);
+        double cnt = (double) width * height;
+        double varR = variance(sums[0], sums[3], cnt);
+        double varG = variance(sums[1], sums[4], cnt);
+        double varB = variance(sums[2], sums[5], cnt);
 
-        varR /= cnt;
-        varG /= cnt;
-        varB /= cnt;
-        
         return (varR + varG + varB) / 3.0;
     }
 
+    private static double variance(long sum, long sumOfSquares, double cnt) {
+        double mean = sum / cnt;
+        return sumOfSquares / cnt - mean * mean;
+    }
+
+    @Override
+    public boolean isConstantTime(RGBMatrix rgbMatrix) {
+        return rgbMatrix.isIntegralImageEnabled();
+    }
+
+    @Override
+    public boolean isSampleEstimable() {
+        return true;
+    }
+
     @Override
     public String getName() {
         return "Variance";